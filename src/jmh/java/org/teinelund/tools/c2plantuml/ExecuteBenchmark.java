@@ -0,0 +1,77 @@
+package org.teinelund.tools.c2plantuml;
+
+import com.beust.jcommander.JCommander;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a whole run, from fetching the source files to saving the diagram, on a code base written by
+ * CCodebaseGenerator with nrOfFiles source files of 20 methods each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ExecuteBenchmark {
+
+    @Param({"100", "1000"})
+    private int nrOfFiles;
+
+    @Param({"1", "4"})
+    private int nrOfThreads;
+
+    private Path directory;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("c2plantuml-benchmark");
+        CCodebaseGenerator generator = new CCodebaseGenerator();
+        generator.setNrOfFiles(nrOfFiles);
+        generator.setNrOfMethodsPerFile(20);
+        generator.setFanOut(3);
+        generator.setNrOfIncludesPerFile(3);
+        generator.setCycleRate(0.05);
+        generator.setMultiLineRate(0.2);
+        generator.generate(directory.resolve("input"));
+    }
+
+    // The output file must not exist when the run starts.
+    @Setup(Level.Invocation)
+    public void deleteOutputFile() throws IOException {
+        Files.deleteIfExists(directory.resolve("main.puml"));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Benchmark
+    public Application execute() throws IOException {
+        Application application = new Application();
+        JCommander jc = JCommander.newBuilder().addObject(application).build();
+        jc.parse("-i", directory.resolve("input").toString(), "-o", directory.resolve("main.puml").toString(),
+                "--collapse-repeated", "--threads", Integer.toString(nrOfThreads));
+        application.execute(jc);
+        return application;
+    }
+}
@@ -0,0 +1,123 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parseSourceFile on a file of 200 methods, with different mixes of lines:
+ * header: include statements and method declarations, some of them on two lines.
+ * source: method definitions with invokations, control statements and comments.
+ * multiLine: method definitions and invokations written over two lines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class ParseSourceFileBenchmark {
+
+    private static final int NR_OF_METHODS = 200;
+
+    @Param({"header", "source", "multiLine"})
+    private String lineMix;
+
+    private Application application;
+    private List<String> sourceLines;
+
+    @Setup
+    public void setup() {
+        NameTable.global().clear();
+        application = new Application();
+        sourceLines = new ArrayList<>();
+        switch (lineMix) {
+            case "header":
+                createHeaderLines();
+                break;
+            case "source":
+                createSourceLines();
+                break;
+            case "multiLine":
+                createMultiLineSourceLines();
+                break;
+            default:
+                throw new IllegalStateException("Unknown line mix '" + lineMix + "'.");
+        }
+        int nrOfMethods = lineMix.equals("header") ?
+                parseSourceFile().getMethodDeclarations().size() : parseSourceFile().getMethodDefinitions().size();
+        if (nrOfMethods != NR_OF_METHODS) {
+            throw new IllegalStateException("Expected " + NR_OF_METHODS + " methods, parsed " + nrOfMethods + ".");
+        }
+    }
+
+    @Benchmark
+    public CSourceFile parseSourceFile() {
+        return application.parseSourceFile(sourceLines, "benchmark.c");
+    }
+
+    private void createHeaderLines() {
+        sourceLines.add("#ifndef BENCHMARK_H");
+        sourceLines.add("#define BENCHMARK_H");
+        sourceLines.add("#include <stdio.h>");
+        sourceLines.add("#include \"order.h\"");
+        sourceLines.add("");
+        for (int i = 0; i < NR_OF_METHODS; i++) {
+            if (i % 4 == 0) {
+                sourceLines.add("/* Declaration of method " + i + " */");
+                sourceLines.add("static enum ea_type process_ea" + i + "(operand *, ea *, int, int,");
+                sourceLines.add("opflags_t, insn *, const char **);");
+            }
+            else {
+                sourceLines.add("int32_t seg_alloc" + i + "(const struct pragma *pragma, size_t len);");
+            }
+        }
+        sourceLines.add("#endif");
+    }
+
+    private void createSourceLines() {
+        sourceLines.add("#include <stdio.h>");
+        sourceLines.add("#include \"benchmark.h\"");
+        sourceLines.add("");
+        for (int i = 0; i < NR_OF_METHODS; i++) {
+            sourceLines.add("// Method " + i);
+            sourceLines.add("static size_t method" + i + "(uint8_t *str, size_t len, char *op) {");
+            sourceLines.add("    size_t count = 0;");
+            sourceLines.add("    for (int j = 0; j < len; j++) {");
+            sourceLines.add("        count += method" + ((i + 1) % NR_OF_METHODS) + "(str, j, op);");
+            sourceLines.add("    }");
+            sourceLines.add("    if (count > len) {");
+            sourceLines.add("        printf(\"%d\\n\", count);");
+            sourceLines.add("    }");
+            sourceLines.add("    return count;");
+            sourceLines.add("}");
+            sourceLines.add("");
+        }
+    }
+
+    private void createMultiLineSourceLines() {
+        sourceLines.add("#include \"benchmark.h\"");
+        sourceLines.add("");
+        for (int i = 0; i < NR_OF_METHODS; i++) {
+            sourceLines.add("static inline enum pp_token_type");
+            sourceLines.add("tok_smac_param" + i + "(int param)");
+            sourceLines.add("{");
+            sourceLines.add("    return tok_smac_param" + ((i + 1) % NR_OF_METHODS) + "(param,");
+            sourceLines.add("        param + 1);");
+            sourceLines.add("}");
+            sourceLines.add("");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Measures createPlantUmlContent on call trees of nrOfMethods methods, dealt out over source files of 10 methods each,
+ * so that an invoked method is in another source file than the invoking method (the diagram does not go deeper than
+ * two invokations within the same source file). A source file includes the header files of the source files it
+ * invokes methods in. The shapes are:
+ * deep: main invokes method 1, which invokes method 2, and so on.
+ * wide: main invokes all other methods.
+ * tree: method i invokes methods 4i + 1 to 4i + 4.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class PlantUmlContentBenchmark {
+
+    private static final int NR_OF_METHODS_PER_FILE = 10;
+
+    @Param({"deep", "wide", "tree"})
+    private String shape;
+
+    @Param({"1000", "10000"})
+    private int nrOfMethods;
+
+    private Application application;
+
+    @Setup
+    public void setup() {
+        NameTable.global().clear();
+        CSourceFile[] cSourceFiles = new CSourceFile[(nrOfMethods + NR_OF_METHODS_PER_FILE - 1) / NR_OF_METHODS_PER_FILE];
+        CSourceFile[] cHeaderFiles = new CSourceFile[cSourceFiles.length];
+        for (int file = 0; file < cSourceFiles.length; file++) {
+            cSourceFiles[file] = new CSourceFile("file" + file + ".c");
+            cHeaderFiles[file] = new CSourceFile("file" + file + ".h");
+        }
+        for (int method = 0; method < nrOfMethods; method++) {
+            int file = method % cSourceFiles.length;
+            cSourceFiles[file].addMethodImplementation(methodName(method));
+            for (int invokedMethod : invokedMethods(method).filter(i -> i < nrOfMethods).toArray()) {
+                int invokedFile = invokedMethod % cSourceFiles.length;
+                if (invokedFile != file && !cSourceFiles[file].getIncludeHeaderFiles().contains("file" + invokedFile + ".h")) {
+                    cSourceFiles[file].addIncludeHeaderFile("file" + invokedFile + ".h");
+                }
+                cSourceFiles[file].addMethodInvokation(methodName(invokedMethod));
+            }
+        }
+        application = new Application();
+        application.weaveCodeTogether(List.of(cHeaderFiles), List.of(cSourceFiles), new HashMap<>(), "main", "");
+    }
+
+    @Benchmark
+    public String createPlantUmlContent() {
+        application.createPlantUmlContent(application.getStartingMethod());
+        return application.getPlantUmlContent();
+    }
+
+    private IntStream invokedMethods(int method) {
+        switch (shape) {
+            case "deep":
+                return IntStream.of(method + 1);
+            case "wide":
+                return method == 0 ? IntStream.range(1, nrOfMethods) : IntStream.empty();
+            case "tree":
+                return IntStream.rangeClosed(4 * method + 1, 4 * method + 4);
+            default:
+                throw new IllegalStateException("Unknown shape '" + shape + "'.");
+        }
+    }
+
+    private static String methodName(int method) {
+        return method == 0 ? "main" : "method" + method;
+    }
+}
@@ -0,0 +1,80 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures weaveCodeTogether on a synthetic model of nrOfMethods methods, 50 methods per source file. Each source
+ * file has a header file declaring its methods and includes the header files of the next two source files. Each
+ * method invokes the next method in its own source file and the method with the same index in each of the two
+ * included source files. Weaving changes the model, so a new model is made before each invokation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class WeaveCodeTogetherBenchmark {
+
+    private static final int NR_OF_METHODS_PER_FILE = 50;
+
+    @Param({"1000", "10000", "100000"})
+    private int nrOfMethods;
+
+    private Application application;
+    private List<CSourceFile> cHeaderFiles;
+    private List<CSourceFile> cSourceFiles;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        NameTable.global().clear();
+        application = new Application();
+        cHeaderFiles = new ArrayList<>();
+        cSourceFiles = new ArrayList<>();
+        int nrOfFiles = nrOfMethods / NR_OF_METHODS_PER_FILE;
+        for (int file = 0; file < nrOfFiles; file++) {
+            CSourceFile cHeaderFile = new CSourceFile("file" + file + ".h");
+            CSourceFile cSourceFile = new CSourceFile("file" + file + ".c");
+            int nextFile = (file + 1) % nrOfFiles;
+            int secondNextFile = (file + 2) % nrOfFiles;
+            cSourceFile.addIncludeHeaderFile("file" + file + ".h");
+            cSourceFile.addIncludeHeaderFile("file" + nextFile + ".h");
+            cSourceFile.addIncludeHeaderFile("file" + secondNextFile + ".h");
+            for (int method = 0; method < NR_OF_METHODS_PER_FILE; method++) {
+                cHeaderFile.addMethodDeclaration(methodName(file, method));
+                cSourceFile.addMethodImplementation(methodName(file, method));
+                cSourceFile.addMethodInvokation(methodName(file, (method + 1) % NR_OF_METHODS_PER_FILE));
+                cSourceFile.addMethodInvokation(methodName(nextFile, method));
+                cSourceFile.addMethodInvokation(methodName(secondNextFile, method));
+            }
+            cHeaderFiles.add(cHeaderFile);
+            cSourceFiles.add(cSourceFile);
+        }
+    }
+
+    @Benchmark
+    public CallGraph weaveCodeTogether() {
+        application.weaveCodeTogether(cHeaderFiles, cSourceFiles, new HashMap<>());
+        return application.callGraph;
+    }
+
+    private static String methodName(int file, int method) {
+        return "file" + file + "_method" + method;
+    }
+}
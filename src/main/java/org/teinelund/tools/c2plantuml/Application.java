@@ -2,25 +2,50 @@ package org.teinelund.tools.c2plantuml;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.Parameters;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 
 /**
  * Main class
  */
+@Parameters(separators = "=")
 public class Application {
 
     @Parameter(names = { "-i", "--input" }, description = "Directory containing c source code to be analyzed. Mandatory.",
@@ -32,14 +57,83 @@ public class Application {
     private String output = "";
 
     @Parameter(names = { "-m", "--method" }, description = "Method name to start the UML sequence diagram. Default " +
-            "method name is 'main' and aims at the method 'void main(char* args)'. Optional.", order = 3)
-    private String startingMethodName = "main";
+            "method name is 'main' and aims at the method 'void main(char* args)'. May be given more than once, " +
+            "which creates one diagram per method in the directory given by --output. Optional.", order = 3)
+    private List<String> startingMethodNames = new ArrayList<>();
 
     @Parameter(names = { "-s", "--source"}, description = "Source file name, where the method (given by the option " +
             "--method) reside. If method name is unique, source is optional. If method name is not unique, source is " +
             "mandatory. Example \"--source order.c\".", order = 4)
     private String implementingSourceFileName = "";
 
+    @Parameter(names = { "-t", "--threads" }, description = "Number of threads used to parse source files, and to " +
+            "create diagrams when there are several start methods. Default is 1, which parses the files and creates " +
+            "the diagrams one at a time. Optional.", order = 5)
+    private int nrOfThreads = 1;
+
+    @Parameter(names = { "--io" }, description = "How source files are read. 'stream' reads them through a buffered " +
+            "reader, 'mmap' memory maps them. Default is 'stream'. Optional.", order = 6)
+    private IO_MODE ioMode = IO_MODE.STREAM;
+
+    @Parameter(names = { "--io-threads" }, description = "Number of threads reading source files, for storage with " +
+            "high latency, like a network mount. The files are read whole, and parsed by the --threads threads. " +
+            "Default is 0, which means the threads parsing the files also read them, as given by --io. Optional.",
+            order = 15)
+    private int nrOfIoThreads = 0;
+
+    @Parameter(names = { "--lazy" }, description = "Parse only the source file given by --source, and the files it " +
+            "leads to through include statements and header files, instead of all files. Requires --source. " +
+            "Optional.", order = 16)
+    private boolean lazy = false;
+
+    @Parameter(names = { "--cache" }, description = "Directory where parsed source files are cached between runs. " +
+            "A source file is only parsed again if it has changed. Example \"--cache .c2plantuml-cache\". Optional.",
+            order = 7)
+    private String cacheDirectory = "";
+
+    @Parameter(names = { "--save-model" }, description = "File to save the parsed and woven source code to, in a " +
+            "compact binary format. Load it with --load-model to create diagrams without parsing again. Optional.",
+            order = 8)
+    private String saveModelFile = "";
+
+    @Parameter(names = { "--load-model" }, description = "File, saved with --save-model, to load the source code " +
+            "from instead of parsing the directory given by --input. Optional.", order = 9)
+    private String loadModelFile = "";
+
+    @Parameter(names = { "--methods-file" }, description = "File with one method name per line, optionally followed " +
+            "by the source file name where it reside. Lines starting with '#' are comments. One diagram per method is " +
+            "created in the directory given by --output, named '<method>.puml', or '<source>.<method>.puml' if a " +
+            "source file name is given. Optional.", order = 10)
+    private String methodsFile = "";
+
+    @Parameter(names = { "--collapse-repeated" }, description = "Show the methods invoked by a method only the first " +
+            "time the method is expanded in a diagram. Later invokations refer to it instead. Makes diagrams of code " +
+            "with often used helper methods much smaller. Optional.", order = 11)
+    private boolean collapseRepeatedMethods = false;
+
+    @Parameter(names = { "--max-depth" }, description = "Maximum depth of the call chain from the start method, " +
+            "which has depth 1. Deeper invokations are replaced by a note. Default is 0, which means no limit. " +
+            "Optional.", order = 12)
+    private int maxDepth = 0;
+
+    @Parameter(names = { "--max-nodes" }, description = "Maximum number of method invokations in a diagram. Further " +
+            "invokations are replaced by notes. Default is 0, which means no limit. Optional.", order = 13)
+    private int maxNodes = 0;
+
+    @Parameter(names = { "--max-output-bytes" }, description = "Size of a diagram after which no more method " +
+            "invokations are added. They are replaced by notes, and the returns of the invokations already added are " +
+            "still written. Default is 0, which means no limit. Optional.", order = 14)
+    private long maxOutputBytes = 0;
+
+    @Parameter(names = { "--stats" }, description = "Print the wall time, CPU time and allocated bytes of each phase, " +
+            "and the number of files, lines, bytes, functions, edges, unresolved calls and output lines, at the end. " +
+            "Optional.", order = 17)
+    private boolean stats = false;
+
+    @Parameter(names = { "--stats-json" }, description = "File to write the statistics printed by --stats to, as " +
+            "JSON. Optional.", order = 18)
+    private String statsJsonFile = "";
+
     @Parameter(names = { "-v", "--verbose" }, description = "Verbose output.", order = 50)
     private boolean verbose = false;
 
@@ -49,12 +143,24 @@ public class Application {
     @Parameter(names = { "-h", "--help" }, help = true, order = 52)
     private boolean help = false;
 
+    // Stored in each --cache entry. Increase it whenever parseSourceFile may give another model for the same file,
+    // so entries made by an older parser are parsed again.
+    static final int PARSER_VERSION = 1;
+    static final int PATH_QUEUE_CAPACITY = 1024;
+    static final int READ_PERMITS_PER_IO_THREAD = 4;
+    // Compared by identity.
+    static final Path END_OF_PATHS = Path.of("");
+
     Path inputPath;
     Path outputPath;
     Collection<Path> paths;
+    CSourceFileCache cSourceFileCache = null;
     Collection<CSourceFile> cHeaderFiles = new ArrayList<>();
     Collection<CSourceFile> cSourceFiles = new ArrayList<>();
     Map<String, CSourceFile> cSourceFileMap = new HashMap<>();
+    CMethodImplementationIndex methodImplementationIndex = null;
+    CallGraph callGraph = null;
+    RunStatistics statistics = new RunStatistics(false);
     CMethodImplementation startMethod = null;
     String plantUmlContent = "";
 
@@ -93,17 +199,213 @@ public class Application {
 
         verifyParameters();
 
-        paths = fetchCFiles();
+        // Each run starts with an empty name table, so its ids do not depend on earlier runs in the same JVM.
+        NameTable.global().clear();
 
-        parsePaths();
+        List<StartMethod> startMethods = List.of();
+        if (isBatchMode()) {
+            startMethods = readStartMethods();
+            verifyStartMethods(startMethods);
+        }
 
-        weaveCodeTogether(cHeaderFiles, cSourceFiles, cSourceFileMap, startingMethodName, implementingSourceFileName);
+        statistics = new RunStatistics(stats || !statsJsonFile.isBlank());
+
+        if (loadModelFile.isBlank()) {
+            if (!cacheDirectory.isBlank()) {
+                cSourceFileCache = new CSourceFileCache(Path.of(cacheDirectory));
+            }
+
+            if (lazy) {
+                statistics.startPhase("fetchAndParseReachableCFiles");
+                fetchAndParseReachableCFiles();
+                statistics.endPhase();
+            }
+            else if (nrOfThreads <= 1 && nrOfIoThreads == 0) {
+                statistics.startPhase("fetchCFiles");
+                paths = fetchCFiles();
+                statistics.endPhase();
+
+                statistics.startPhase("parsePaths");
+                parsePaths();
+                statistics.endPhase();
+            }
+            else if (nrOfIoThreads == 0) {
+                statistics.startPhase("fetchAndParseCFiles");
+                fetchAndParseCFiles();
+                statistics.endPhase();
+            }
+            else {
+                statistics.startPhase("fetchReadAndParseCFiles");
+                fetchReadAndParseCFiles();
+                statistics.endPhase();
+            }
+
+            statistics.startPhase("weaveCodeTogether");
+            weaveCodeTogether(cHeaderFiles, cSourceFiles, cSourceFileMap);
+            statistics.endPhase();
+        }
+        else {
+            statistics.startPhase("loadModel");
+            loadModel(Path.of(loadModelFile));
+            statistics.endPhase();
+        }
+
+        if (!saveModelFile.isBlank()) {
+            statistics.startPhase("saveModel");
+            saveModel(Path.of(saveModelFile));
+            statistics.endPhase();
+        }
 
         //printAST();
 
-        createPlantUmlContent(this.startMethod);
+        if (isBatchMode()) {
+            statistics.startPhase("createPlantUmlFiles");
+            createPlantUmlFiles(startMethods);
+            statistics.endPhase();
+        }
+        else {
+            statistics.startPhase("writePlantUmlContent");
+            this.startMethod = findStartMethod(getStartingMethodName(), implementingSourceFileName);
+
+            writePlantUmlContent(this.startMethod, this.outputPath);
+            statistics.endPhase();
+        }
+
+        // Verbose output is written by a background thread. Write the rest of it before the statistics.
+        Log.global().flush();
+
+        if (statistics.isEnabled()) {
+            saveStatistics();
+        }
+    }
+
+    /**
+     * Counts the files, functions and edges of the model, then prints the statistics if --stats is given, and writes
+     * them to the file given by --stats-json.
+     */
+    void saveStatistics() throws IOException {
+        long nrOfFunctions = 0;
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            nrOfFunctions += cSourceFile.getMethodDefinitions().size();
+        }
+        statistics.setNrOfFiles(cHeaderFiles.size() + cSourceFiles.size());
+        statistics.setNrOfFunctions(nrOfFunctions);
+        statistics.setNrOfEdges(Objects.isNull(callGraph) ? 0 : callGraph.getNrOfEdges());
+        if (stats) {
+            System.out.print(statistics.toText());
+        }
+        if (!statsJsonFile.isBlank()) {
+            Files.writeString(Path.of(statsJsonFile), statistics.toJson(), StandardCharsets.UTF_8);
+        }
+    }
+
+    boolean isBatchMode() {
+        return startingMethodNames.size() > 1 || !methodsFile.isBlank();
+    }
+
+    String getStartingMethodName() {
+        return startingMethodNames.isEmpty() ? "main" : startingMethodNames.get(0);
+    }
 
-        savePlantUmlContent();
+    /**
+     * Returns the start methods given by --method and --methods-file, in that order.
+     */
+    List<StartMethod> readStartMethods() throws IOException {
+        List<StartMethod> startMethods = new ArrayList<>();
+        for (String methodName : startingMethodNames) {
+            startMethods.add(new StartMethod(methodName, implementingSourceFileName));
+        }
+        if (!methodsFile.isBlank()) {
+            startMethods.addAll(readStartMethods(Path.of(methodsFile)));
+        }
+        return startMethods;
+    }
+
+    List<StartMethod> readStartMethods(Path methodsPath) throws IOException {
+        List<StartMethod> startMethods = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(methodsPath, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] names = line.split("\\s+");
+            if (names.length > 2) {
+                throw new IllegalStateException("Line " + lineNumber + " in methods file '" + methodsPath +
+                        "' contains more than a method name and a source file name. Check it.");
+            }
+            if (!StartMethod.isMethodName(names[0])) {
+                throw new IllegalStateException("Line " + lineNumber + " in methods file '" + methodsPath +
+                        "' contains method name '" + names[0] + "', which is not a C identifier. Check it.");
+            }
+            if (names.length == 2 && !StartMethod.isSourceFileName(names[1])) {
+                throw new IllegalStateException("Line " + lineNumber + " in methods file '" + methodsPath +
+                        "' contains source file name '" + names[1] + "', which is not a file name. Check it.");
+            }
+            startMethods.add(new StartMethod(names[0], names.length == 2 ? names[1] : ""));
+        }
+        return startMethods;
+    }
+
+    /**
+     * Checks that no two start methods give the same diagram file, and that no diagram file exists in the output
+     * directory, the way verifyParameters checks the output file of a single diagram.
+     */
+    void verifyStartMethods(List<StartMethod> startMethods) {
+        Map<String, StartMethod> startMethodByDiagramFileName = new HashMap<>();
+        for (StartMethod startMethod : startMethods) {
+            String diagramFileName = startMethod.getDiagramFileName();
+            if (startMethodByDiagramFileName.containsKey(diagramFileName)) {
+                throw new IllegalStateException("Diagram file '" + diagramFileName + "' is given by more than " +
+                        "one start method. Check --method and --methods-file.");
+            }
+            startMethodByDiagramFileName.put(diagramFileName, startMethod);
+            Path diagramPath = this.outputPath.resolve(diagramFileName);
+            if (Files.exists(diagramPath)) {
+                throw new IllegalStateException("Output path '" + diagramPath + "' does exist. Check it.");
+            }
+        }
+    }
+
+    /**
+     * Creates one diagram per start method in the output directory, reusing the parsed and woven code. The start
+     * methods are checked by verifyStartMethods, so each diagram file is written by one thread. The diagrams are
+     * rendered by --threads threads. A start method that is not found, or not unique, is reported and skipped.
+     */
+    void createPlantUmlFiles(List<StartMethod> startMethods) throws IOException {
+        printVerbose("Create PlantUML Files.");
+        Files.createDirectories(this.outputPath);
+        int nrOfFailures = 0;
+        if (nrOfThreads <= 1) {
+            for (StartMethod startMethod : startMethods) {
+                if (!createPlantUmlFile(startMethod)) {
+                    nrOfFailures++;
+                }
+            }
+        }
+        else {
+            ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads);
+            try {
+                List<Future<Boolean>> futures = new ArrayList<>(startMethods.size());
+                for (StartMethod startMethod : startMethods) {
+                    futures.add(executorService.submit(
+                            () -> statistics.measureWork(() -> createPlantUmlFile(startMethod))));
+                }
+                for (Future<Boolean> future : futures) {
+                    if (!awaitResult(future)) {
+                        nrOfFailures++;
+                    }
+                }
+            }
+            finally {
+                executorService.shutdownNow();
+            }
+        }
+        if (nrOfFailures > 0) {
+            throw new IllegalStateException(nrOfFailures + " of " + startMethods.size() +
+                    " diagrams could not be created.");
+        }
     }
 
     // DEBUG
@@ -126,6 +428,50 @@ public class Application {
         }
     }
 
+    void saveModel(Path modelPath) throws IOException {
+        printVerbose("Save Model.");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(modelPath))) {
+            new CModelWriter(out).write(cHeaderFiles, cSourceFiles);
+        }
+    }
+
+    void loadModel(Path modelPath) throws IOException {
+        printVerbose("Load Model.");
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(modelPath))) {
+            new CModelReader(in, Files.size(modelPath)).read(cHeaderFiles, cSourceFiles);
+        }
+        methodImplementationIndex = new CMethodImplementationIndex(cSourceFiles);
+        callGraph = CallGraph.of(cSourceFiles);
+    }
+
+    /**
+     * Returns false if the start method is not found, or not unique.
+     */
+    boolean createPlantUmlFile(StartMethod startMethod) throws IOException {
+        CMethodImplementation cMethodImplementation;
+        try {
+            cMethodImplementation = findStartMethod(startMethod.getMethodName(), startMethod.getSourceFileName());
+        }
+        catch (IllegalStateException e) {
+            printError(e.getMessage());
+            return false;
+        }
+        writePlantUmlContent(cMethodImplementation, this.outputPath.resolve(startMethod.getDiagramFileName()));
+        return true;
+    }
+
+    /**
+     * Renders the diagram straight into the file, without holding it in memory.
+     */
+    void writePlantUmlContent(CMethodImplementation startMethod, Path outputPath) throws IOException {
+        printVerbose("Write PlantUML Content.");
+        PlantUmlRenderer plantUmlRenderer = newPlantUmlRenderer(startMethod);
+        try (Writer writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            plantUmlRenderer.render(startMethod, writer);
+        }
+        statistics.addOutputLines(plantUmlRenderer.getNrOfOutputLines());
+    }
+
     void savePlantUmlContent() throws IOException {
         printVerbose("Save PlantUML Content.");
         Files.writeString(this.outputPath, this.plantUmlContent, StandardCharsets.UTF_8);
@@ -133,58 +479,70 @@ public class Application {
 
     void createPlantUmlContent(CMethodImplementation startMethod) {
         printVerbose("Create PlantUML Content.");
-        StringBuilder plantUmlContent = new StringBuilder();
-        plantUmlContent.append("@startuml"); plantUmlContent.append(System.lineSeparator());
-        plantUmlContent.append("autoactivate on"); plantUmlContent.append(System.lineSeparator());
-        plantUmlContent.append("actor Invoker"); plantUmlContent.append(System.lineSeparator());
-        createPlantUmlContentMethod(plantUmlContent, "Invoker", startMethod, 0);
-        plantUmlContent.append("@enduml"); plantUmlContent.append(System.lineSeparator());
-        this.plantUmlContent = plantUmlContent.toString();
+        PlantUmlRenderer plantUmlRenderer = newPlantUmlRenderer(startMethod);
+        this.plantUmlContent = plantUmlRenderer.render(startMethod);
+        statistics.addOutputLines(plantUmlRenderer.getNrOfOutputLines());
+    }
+
+    /**
+     * Renders with the call graph made by weaving, or if the start method is not in it, with the call graph reachable
+     * from the start method.
+     */
+    PlantUmlRenderer newPlantUmlRenderer(CMethodImplementation startMethod) {
+        CallGraph callGraph = this.callGraph;
+        if (Objects.isNull(callGraph) || !callGraph.contains(startMethod)) {
+            callGraph = CallGraph.reachableFrom(startMethod);
+        }
+        PlantUmlRenderer plantUmlRenderer = new PlantUmlRenderer(callGraph, verbose ? this::printVerbose : null);
+        plantUmlRenderer.setCollapseRepeatedMethods(collapseRepeatedMethods);
+        plantUmlRenderer.setMaxDepth(maxDepth);
+        plantUmlRenderer.setMaxNodes(maxNodes);
+        plantUmlRenderer.setMaxOutputBytes(maxOutputBytes);
+        return plantUmlRenderer;
     }
 
     String getPlantUmlContent() {
         return this.plantUmlContent;
     }
 
-    void createPlantUmlContentMethod(StringBuilder plantUmlContent, String source,
-                                     CMethodImplementation cMethodImplementation, int nrOfInvokationsInSameSourcefile) {
-        String invokeUml = source + " -> " + cMethodImplementation.getSourceFile().getFileName() + " ++ : " +
-                cMethodImplementation.getName();
-        printVerbose(invokeUml);
-        cMethodImplementation.incTouch();
-        if (source.equals(cMethodImplementation.getSourceFile().getFileName())) {
-            nrOfInvokationsInSameSourcefile++;
-        }
-        plantUmlContent.append(invokeUml); plantUmlContent.append(System.lineSeparator());
-        if (cMethodImplementation.getTouch() < 2 && nrOfInvokationsInSameSourcefile < 2) {
-            for (CMethodImplementation invokedMethod : cMethodImplementation.getMethodInvokations()) {
-                createPlantUmlContentMethod(plantUmlContent, cMethodImplementation.getSourceFile().getFileName(),
-                        invokedMethod, nrOfInvokationsInSameSourcefile);
-            }
+    void weaveCodeTogether(Collection<CSourceFile> cHeaderFiles, Collection<CSourceFile> cSourceFiles,
+                           Map<String, CSourceFile> cSourceFileMap, String startingMethodName,
+                           String implementingSourceFileName) {
+        weaveCodeTogether(cHeaderFiles, cSourceFiles, cSourceFileMap);
+
+        if (cSourceFiles.isEmpty()) {
+            return;
         }
-        plantUmlContent.append(cMethodImplementation.getSourceFile().getFileName() + " --> " + source); plantUmlContent.append(System.lineSeparator());
-        cMethodImplementation.decTouch();
-        printVerbose(cMethodImplementation.getSourceFile().getFileName() + " --> " + source);
+
+        this.startMethod = findStartMethod(startingMethodName, implementingSourceFileName);
     }
 
     void weaveCodeTogether(Collection<CSourceFile> cHeaderFiles, Collection<CSourceFile> cSourceFiles,
-                           Map<String, CSourceFile> cSourceFileMap, String startingMethodName,
-                           String implementingSourceFileName) {
+                           Map<String, CSourceFile> cSourceFileMap) {
         printVerbose("Wave Code Together.");
 
+        WeavePassEvent weavePassEvent = FlightRecorderEvents.beginWeavePass();
+        methodImplementationIndex = new CMethodImplementationIndex(cSourceFiles);
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "indexMethodImplementations", cSourceFiles.size());
+
         if (cSourceFiles.isEmpty()) {
+            callGraph = CallGraph.of(cSourceFiles);
             return;
         }
 
         // Put all files in the map
+        weavePassEvent = FlightRecorderEvents.beginWeavePass();
         for (CSourceFile cSourceFile : cHeaderFiles) {
             cSourceFileMap.put(cSourceFile.getFileName(), cSourceFile);
         }
         for (CSourceFile cSourceFile : cSourceFiles) {
             cSourceFileMap.put(cSourceFile.getFileName(), cSourceFile);
         }
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "mapFileNames",
+                cHeaderFiles.size() + cSourceFiles.size());
 
         // Find corresponding source file for given header file
+        weavePassEvent = FlightRecorderEvents.beginWeavePass();
         for (CSourceFile cHeaderFile : cHeaderFiles) {
             String fileName = cHeaderFile.getFileName().replace(".h", ".c");
             if (cSourceFileMap.containsKey(fileName)) {
@@ -192,8 +550,10 @@ public class Application {
                 cHeaderFile.addSourceFile(cSourceFile);
             }
         }
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "connectHeaderFilesToSourceFiles", cHeaderFiles.size());
 
         // Add header files included in source file.
+        weavePassEvent = FlightRecorderEvents.beginWeavePass();
         for (CSourceFile cSourceFile : cSourceFiles) {
             for (String headerFile : cSourceFile.getIncludeHeaderFiles()) {
                 if (cSourceFileMap.containsKey(headerFile)) {
@@ -202,72 +562,81 @@ public class Application {
                 }
             }
         }
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "connectIncludedHeaderFiles", cSourceFiles.size());
 
         //
         // Connect method invokations in method implementations
         //
 
+        weavePassEvent = FlightRecorderEvents.beginWeavePass();
+        // Method invokations that no method implementation is found for, e.g. library functions.
+        int nrOfUnresolvedCalls = 0;
+
         // For each C source implementation file...
         for (CSourceFile cSourceFile : cSourceFiles) {
             // for each method implementation in a CSourceFile...
             for (CMethodImplementation cMethodImplementation : cSourceFile.getMethodDefinitions()) {
 
-                // Found starting method?
-                boolean isStoreMethodImplementation = false;
-                if (cMethodImplementation.getName().equals(startingMethodName)) {
-                    if (implementingSourceFileName.isBlank()) {
-                        isStoreMethodImplementation = true;
-                    }
-                    else {
-                        if (cSourceFile.getFileName().equals(implementingSourceFileName)) {
-                            isStoreMethodImplementation = true;
-                        }
-                    }
-                    if (isStoreMethodImplementation) {
-                        if (Objects.isNull(this.startMethod)) {
-                            this.startMethod = cMethodImplementation;
-                        } else {
-                            if (implementingSourceFileName.isBlank()) {
-                                throw new IllegalStateException("Method '" + startingMethodName + "' is not unique.");
-                            }
-                            else {
-                                throw new IllegalStateException("Method '" + startingMethodName + "' is not unique. Source name contains: '" + implementingSourceFileName + "'. Check spelling.");
-                            }
-                        }
-                    }
-                }
-
                 // for each method invokation name in a method implementation...
                 for (String methodInvokationName : cMethodImplementation.getMethodInvokationNames()) {
                     // try to find which implementation implements the method invokation.
+                    if (!methodImplementationIndex.contains(methodInvokationName)) {
+                        nrOfUnresolvedCalls++;
+                        continue;
+                    }
+                    int nrOfMethodInvokations = cMethodImplementation.getMethodInvokations().size();
 
                     // Try first the current source file
-                    for (CMethodImplementation cMethodImplementation2 : cSourceFile.getMethodDefinitions()) {
-                        if (cMethodImplementation2.getName().equals(methodInvokationName)) {
-                            cMethodImplementation.addMethodInvokation(cMethodImplementation2);
-                        }
+                    for (CMethodImplementation cMethodImplementation2 : methodImplementationIndex.find(methodInvokationName, cSourceFile)) {
+                        cMethodImplementation.addMethodInvokation(cMethodImplementation2);
                     }
 
                     // For each header file included in the CSourceFile...
                     for (CSourceFile headerFile : cSourceFile.getHeaderFiles()) {
-                        // for each method implementation in the corresponding CSourceFile for the header file...
+                        // ...look in the CSourceFile corresponding to the header file.
                         if (!Objects.isNull(headerFile.getcSourceFile())) {
-                            for (CMethodImplementation invokedMethodImplementation : headerFile.getcSourceFile().getMethodDefinitions()) {
-
-                                if (invokedMethodImplementation.getName().equals(methodInvokationName)) {
-                                    cMethodImplementation.addMethodInvokation(invokedMethodImplementation);
-                                }
-
+                            for (CMethodImplementation invokedMethodImplementation :
+                                    methodImplementationIndex.find(methodInvokationName, headerFile.getcSourceFile())) {
+                                cMethodImplementation.addMethodInvokation(invokedMethodImplementation);
                             }
                         }
                     }
+                    if (cMethodImplementation.getMethodInvokations().size() == nrOfMethodInvokations) {
+                        nrOfUnresolvedCalls++;
+                    }
                 }
             }
         }
+        statistics.addUnresolvedCalls(nrOfUnresolvedCalls);
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "connectMethodInvokations", cSourceFiles.size());
+
+        weavePassEvent = FlightRecorderEvents.beginWeavePass();
+        callGraph = CallGraph.of(cSourceFiles);
+        FlightRecorderEvents.endWeavePass(weavePassEvent, "buildCallGraph", cSourceFiles.size());
+    }
 
-        if (Objects.isNull(this.startMethod)) {
+    CMethodImplementation findStartMethod(String startingMethodName, String implementingSourceFileName) {
+        CMethodImplementation startMethod = null;
+        for (CMethodImplementation cMethodImplementation : methodImplementationIndex.find(startingMethodName)) {
+            if (implementingSourceFileName.isBlank() ||
+                    cMethodImplementation.getSourceFile().getFileName().equals(implementingSourceFileName)) {
+                if (Objects.isNull(startMethod)) {
+                    startMethod = cMethodImplementation;
+                }
+                else {
+                    if (implementingSourceFileName.isBlank()) {
+                        throw new IllegalStateException("Method '" + startingMethodName + "' is not unique.");
+                    }
+                    else {
+                        throw new IllegalStateException("Method '" + startingMethodName + "' is not unique. Source name contains: '" + implementingSourceFileName + "'. Check spelling.");
+                    }
+                }
+            }
+        }
+        if (Objects.isNull(startMethod)) {
             throw new IllegalStateException("Method '" + startingMethodName + "' is not found.");
         }
+        return startMethod;
     }
 
     CMethodImplementation getStartingMethod() {
@@ -276,66 +645,370 @@ public class Application {
 
     void parsePaths() throws IOException {
         printVerbose("Parse Paths.");
-        Map<String, CSourceFile> cFileEntityMap = new HashMap<>();
-        for (Path path : paths) {
-            parsePath(path);
+        for (CSourceFile cSourceFile : parsePaths(paths)) {
+            addCSourceFile(cSourceFile);
         }
     }
 
-    void parsePath(Path path) throws IOException {
-        printVerbose("Parse Path.");
-        Path fileName = path.getFileName();
-        String fileNameName = fileName.toString();
-        List<String> sourceLines = Files.readAllLines(path, StandardCharsets.ISO_8859_1);
-        if (fileNameName.endsWith(".h")) {
-            cHeaderFiles.add(parseSourceFile(sourceLines, fileNameName));
+    /**
+     * Returns the parsed files in the same order as the paths.
+     */
+    List<CSourceFile> parsePaths(Collection<Path> paths) throws IOException {
+        List<CSourceFile> cSourceFiles = new ArrayList<>(paths.size());
+        if (nrOfThreads <= 1) {
+            for (Path path : paths) {
+                cSourceFiles.add(parsePath(path));
+            }
+            return cSourceFiles;
         }
-        else {
-            cSourceFiles.add(parseSourceFile(sourceLines, fileNameName));
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads);
+        try {
+            List<Future<CSourceFile>> futures = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                futures.add(executorService.submit(() -> statistics.measureWork(() -> parsePath(path))));
+            }
+            // Merge in path order, so the result does not depend on which thread finished first.
+            for (Future<CSourceFile> future : futures) {
+                cSourceFiles.add(awaitResult(future));
+            }
         }
+        finally {
+            executorService.shutdownNow();
+        }
+        return cSourceFiles;
     }
 
-    private Pattern includePattern = Pattern.compile("^\\s*#include \"(.+)\"\\s*$");
+    /**
+     * Parses the source file given by --source, and then only the files it leads to, the same way weaveCodeTogether
+     * connects them: the header files a source file includes, and the source file of a header file. Each step
+     * parses all files reached by the step before, with --threads threads. The parsed files are added in path order.
+     */
+    void fetchAndParseReachableCFiles() throws IOException {
+        printVerbose("Fetch and Parse Reachable C Files.");
+        Map<String, List<Path>> pathsByFileName = new HashMap<>();
+        for (Path path : fetchCFiles()) {
+            pathsByFileName.computeIfAbsent(path.getFileName().toString(), fileName -> new ArrayList<>()).add(path);
+        }
+        if (!pathsByFileName.containsKey(implementingSourceFileName)) {
+            throw new IllegalStateException("Source file '" + implementingSourceFileName + "' is not found.");
+        }
+        Map<Path, CSourceFile> parsedCSourceFiles = new TreeMap<>();
+        Set<String> reachedFileNames = new HashSet<>();
+        List<String> fileNames = List.of(implementingSourceFileName);
+        reachedFileNames.add(implementingSourceFileName);
+        while (!fileNames.isEmpty()) {
+            List<Path> reachedPaths = new ArrayList<>();
+            for (String fileName : fileNames) {
+                reachedPaths.addAll(pathsByFileName.getOrDefault(fileName, List.of()));
+            }
+            List<CSourceFile> cSourceFiles = parsePaths(reachedPaths);
+            List<String> nextFileNames = new ArrayList<>();
+            for (int i = 0; i < reachedPaths.size(); i++) {
+                CSourceFile cSourceFile = cSourceFiles.get(i);
+                parsedCSourceFiles.put(reachedPaths.get(i), cSourceFile);
+                if (cSourceFile.getFileName().endsWith(".h")) {
+                    String fileName = cSourceFile.getFileName().replace(".h", ".c");
+                    if (reachedFileNames.add(fileName)) {
+                        nextFileNames.add(fileName);
+                    }
+                }
+                else {
+                    for (String fileName : cSourceFile.getIncludeHeaderFiles()) {
+                        if (reachedFileNames.add(fileName)) {
+                            nextFileNames.add(fileName);
+                        }
+                    }
+                }
+            }
+            fileNames = nextFileNames;
+        }
+        paths = new ArrayList<>(parsedCSourceFiles.keySet());
+        for (CSourceFile cSourceFile : parsedCSourceFiles.values()) {
+            addCSourceFile(cSourceFile);
+        }
+        printVerbose(() -> "Parsed " + paths.size() + " of paths.");
+    }
 
-    private Pattern methodDeclarationPattern = Pattern.compile(
-            "^\\s*(?:extern\\s+)?(?:const\\s+)?(?:static\\s+)?(?:(?:enum|struct|unsigned)\\s+)?[a-zA-Z0-9_]+\\s+\\*{0,2}\\s*" +
-                    "(?:(?:const_func|pure_func|safe_alloc|safe_malloc\\(\\d+\\)|safe_malloc2\\(\\d+,\\s*\\d+\\))\\s+)?" +
-                    "([a-zA-Z0-9_]+)\\(.*\\);\\s*$");
+    /**
+     * Walks the input directory and parses the files found at the same time. The walker puts the paths in a bounded
+     * queue, which --threads parser threads take them from. The parsed files are added in path order, the same order
+     * as fetchCFiles and parsePaths give.
+     */
+    void fetchAndParseCFiles() throws IOException {
+        printVerbose("Fetch and Parse C Files.");
+        BlockingQueue<Path> pathQueue = new ArrayBlockingQueue<>(PATH_QUEUE_CAPACITY);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(nrOfThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads + 1);
+        try {
+            Future<Void> walker = executorService.submit(() -> statistics.measureWork(() -> {
+                try {
+                    new CSourceFileWalker(forkJoinPool, statistics).walk(inputPath, path -> putPath(pathQueue, path));
+                }
+                finally {
+                    // One end marker per parser thread.
+                    for (int i = 0; i < nrOfThreads; i++) {
+                        putPath(pathQueue, END_OF_PATHS);
+                    }
+                }
+                return null;
+            }));
+            List<Future<Map<Path, CSourceFile>>> parsers = new ArrayList<>(nrOfThreads);
+            for (int i = 0; i < nrOfThreads; i++) {
+                parsers.add(executorService.submit(() -> statistics.measureWork(() -> {
+                    Map<Path, CSourceFile> cSourceFiles = new HashMap<>();
+                    Path path;
+                    while ((path = pathQueue.take()) != END_OF_PATHS) {
+                        cSourceFiles.put(path, parsePath(path));
+                    }
+                    return cSourceFiles;
+                })));
+            }
+            // Await the parsers first. If they all fail, the walker may be blocked on a full queue, until shutdownNow.
+            Map<Path, CSourceFile> parsedCSourceFiles = new TreeMap<>();
+            for (Future<Map<Path, CSourceFile>> parser : parsers) {
+                parsedCSourceFiles.putAll(awaitResult(parser));
+            }
+            awaitResult(walker);
+            paths = new ArrayList<>(parsedCSourceFiles.keySet());
+            for (CSourceFile cSourceFile : parsedCSourceFiles.values()) {
+                addCSourceFile(cSourceFile);
+            }
+        }
+        finally {
+            executorService.shutdownNow();
+            forkJoinPool.shutdownNow();
+        }
+        printVerbose(() -> "Fetched and parsed " + paths.size() + " of paths.");
+    }
 
-    private Pattern methodDefinitionPattern = Pattern.compile(
-            "^\\s*(?:static\\s+)?(?:inline\\s+)?(?:(?:enum|struct|unsigned)\\s+)?[a-zA-Z0-9_]+\\s+\\*{0,2}\\s*" +
-                    "(?:(?:const_func|pure_func|safe_alloc|safe_malloc\\(\\d+\\)|safe_malloc2\\(\\d+,\\s*\\d+\\)|printf_func\\(\\d+,\\s*\\d+\\))\\s+)?" +
-                    "([a-zA-Z0-9_]+)\\(.*\\)\\s*\\{\\s*$");
+    /**
+     * Walks the input directory, reads the files found by --io-threads threads, and parses them by --threads threads,
+     * all at the same time. At most READ_PERMITS_PER_IO_THREAD files per I/O thread are being read, or waiting to be
+     * parsed, so the walker and the readers can not run away from the parsers. The parsed files are added in path
+     * order.
+     */
+    void fetchReadAndParseCFiles() throws IOException {
+        printVerbose("Fetch, Read and Parse C Files.");
+        Semaphore readPermits = new Semaphore(READ_PERMITS_PER_IO_THREAD * nrOfIoThreads);
+        Map<Path, Future<CSourceFile>> parsedCSourceFiles = new ConcurrentSkipListMap<>();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(nrOfThreads);
+        ExecutorService ioExecutorService = Executors.newFixedThreadPool(nrOfIoThreads);
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads);
+        try {
+            new CSourceFileWalker(forkJoinPool, statistics).walk(inputPath, path -> {
+                acquire(readPermits);
+                CompletableFuture<CSourceFile> parsedCSourceFile = CompletableFuture
+                        .supplyAsync(() -> statistics.measureWork(() -> readSourceFileContent(path)), ioExecutorService)
+                        .thenApplyAsync(cSourceFileContent -> statistics.measureWork(
+                                () -> parseSourceFileContent(cSourceFileContent)), executorService);
+                parsedCSourceFile.whenComplete((cSourceFile, throwable) -> readPermits.release());
+                parsedCSourceFiles.put(path, parsedCSourceFile);
+            });
+            for (Future<CSourceFile> parsedCSourceFile : parsedCSourceFiles.values()) {
+                addCSourceFile(awaitResult(parsedCSourceFile));
+            }
+            paths = new ArrayList<>(parsedCSourceFiles.keySet());
+        }
+        finally {
+            executorService.shutdownNow();
+            ioExecutorService.shutdownNow();
+            forkJoinPool.shutdownNow();
+        }
+        printVerbose(() -> "Fetched, read and parsed " + paths.size() + " of paths.");
+    }
 
-    private Pattern methodCurlyBracesClose = Pattern.compile("^\\s*}.*$");
+    /**
+     * Reads the whole file, or gets it from the cache. Called by an I/O thread.
+     */
+    CSourceFileContent readSourceFileContent(Path path) {
+        try {
+            if (Objects.isNull(cSourceFileCache)) {
+                return new CSourceFileContent(path, null, Files.readAllBytes(path), null);
+            }
+            // A file read and parsed is recorded by parseSourceFileContent, a file from the cache here.
+            ParsePathEvent parsePathEvent = FlightRecorderEvents.beginParsePath();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            CSourceFile cSourceFile = cSourceFileCache.get(path, attributes);
+            if (!Objects.isNull(cSourceFile)) {
+                FlightRecorderEvents.endParsePath(parsePathEvent, path, 0, cSourceFile, true);
+                return new CSourceFileContent(path, attributes, null, cSourceFile);
+            }
+            return new CSourceFileContent(path, attributes, Files.readAllBytes(path), null);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-    private Pattern methodCurlyBracesOpen = Pattern.compile("^.*\\{\\s*$");
+    /**
+     * Parses the content read by readSourceFileContent, and stores it in the cache. Called by a parser thread.
+     */
+    CSourceFile parseSourceFileContent(CSourceFileContent cSourceFileContent) {
+        if (!Objects.isNull(cSourceFileContent.getCachedCSourceFile())) {
+            CSourceFile cSourceFile = cSourceFileContent.getCachedCSourceFile();
+            // A file from the cache counts as read, so the counters do not depend on the cache.
+            statistics.addBytes(cSourceFileContent.getAttributes().size());
+            statistics.addLines(cSourceFile.getNrOfLines());
+            return cSourceFile;
+        }
+        printVerbose("Parse Path.");
+        ParsePathEvent parsePathEvent = FlightRecorderEvents.beginParsePath();
+        Path path = cSourceFileContent.getPath();
+        byte[] content = cSourceFileContent.getContent();
+        statistics.addBytes(content.length);
+        CSourceFile cSourceFile = parseSourceFile(new ByteBufferLineIterator(ByteBuffer.wrap(content)),
+                path.getFileName().toString());
+        if (!Objects.isNull(cSourceFileCache)) {
+            try {
+                cSourceFileCache.put(path, cSourceFileContent.getAttributes(),
+                        CSourceFileCache.newContentDigest().digest(content), cSourceFile);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        FlightRecorderEvents.endParsePath(parsePathEvent, path, content.length, cSourceFile, false);
+        return cSourceFile;
+    }
 
-    private Pattern singleLineComment = Pattern.compile("/\\*.*\\*/");
+    static void acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while walking the input directory.", e);
+        }
+    }
 
-    // TODO:
-    // int32_t base = ofmt->segbase(seg + 1);
-    private Pattern methodInvokation = Pattern.compile("^\\s*(?:return\\s+)?(?:[a-zA-Z0-9_]+\\s*=\\s*)?[a-zA-Z0-9_]+\\(.*?\\).*\\;\\s*$");
+    static void putPath(BlockingQueue<Path> pathQueue, Path path) {
+        try {
+            pathQueue.put(path);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while walking the input directory.", e);
+        }
+    }
 
-    private Pattern methodInvokarionName = Pattern.compile("([a-zA-Z0-9_]+)\\(");
+    <T> T awaitResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for worker threads.", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
 
+    CSourceFile parsePath(Path path) throws IOException {
+        printVerbose("Parse Path.");
+        ParsePathEvent parsePathEvent = FlightRecorderEvents.beginParsePath();
+        Path fileName = path.getFileName();
+        String fileNameName = fileName.toString();
+        CSourceFile cSourceFile;
+        if (Objects.isNull(cSourceFileCache)) {
+            cSourceFile = readAndParsePath(path, fileNameName, null);
+        }
+        else {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            cSourceFile = cSourceFileCache.get(path, attributes);
+            if (!Objects.isNull(cSourceFile)) {
+                // A file from the cache counts as read, so the counters do not depend on the cache.
+                statistics.addBytes(attributes.size());
+                statistics.addLines(cSourceFile.getNrOfLines());
+                FlightRecorderEvents.endParsePath(parsePathEvent, path, 0, cSourceFile, true);
+                return cSourceFile;
+            }
+            MessageDigest contentDigest = CSourceFileCache.newContentDigest();
+            cSourceFile = readAndParsePath(path, fileNameName, contentDigest);
+            cSourceFileCache.put(path, attributes, contentDigest.digest(), cSourceFile);
+        }
+        FlightRecorderEvents.endParsePath(parsePathEvent, path, cSourceFile);
+        return cSourceFile;
+    }
 
+    // If contentDigest is not null, it is updated with the file content as it is read.
+    CSourceFile readAndParsePath(Path path, String fileNameName, MessageDigest contentDigest) throws IOException {
+        if (statistics.isEnabled()) {
+            statistics.addBytes(Files.size(path));
+        }
+        if (ioMode == IO_MODE.MMAP) {
+            ByteBufferLineIterator sourceLines = ByteBufferLineIterator.map(path);
+            if (!Objects.isNull(contentDigest)) {
+                sourceLines.updateDigest(contentDigest);
+            }
+            return parseSourceFile(sourceLines, fileNameName);
+        }
+        if (Objects.isNull(contentDigest)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+                return parseSourceFile(reader, fileNameName);
+            }
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new DigestInputStream(Files.newInputStream(path), contentDigest), StandardCharsets.ISO_8859_1))) {
+            return parseSourceFile(reader, fileNameName);
+        }
+    }
+
+    void addCSourceFile(CSourceFile cSourceFile) {
+        if (cSourceFile.getFileName().endsWith(".h")) {
+            cHeaderFiles.add(cSourceFile);
+        }
+        else {
+            cSourceFiles.add(cSourceFile);
+        }
+    }
 
     CSourceFile parseSourceFile(List<String> sourceLines, String fileNameName) {
-        printVerbose("Parse Source File: " + fileNameName + ".");
+        return parseSourceFile(sourceLines.iterator(), fileNameName);
+    }
+
+    /**
+     * Parses the lines as they are read, so only the current line (and the few lines kept in the line memory) are
+     * held in memory, not the whole file.
+     */
+    CSourceFile parseSourceFile(BufferedReader reader, String fileNameName) throws IOException {
+        try {
+            return parseSourceFile(reader.lines().iterator(), fileNameName);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    CSourceFile parseSourceFile(Iterator<String> sourceLines, String fileNameName) {
+        printVerbose(() -> "Parse Source File: " + fileNameName + ".");
         String[] lineMemory = clearMemory();
         CSourceFile cSourceFile = new CSourceFile(fileNameName);
         String methodName = "";
         STATE state = STATE.OUTSIDE_METHOD_DEFINITION;
         int nrOfOpenCurlyBraces = 0;
         boolean isMultilineComment = false;
-        for (String line : sourceLines) {
+        StringBuilder joinedLines = new StringBuilder();
+        int nrOfLines = 0;
+        while (sourceLines.hasNext()) {
+            String line = sourceLines.next();
+            nrOfLines++;
 
             // Replace singe line comments
-            Matcher matcher = singleLineComment.matcher(line);
-            if (matcher.find()) {
-                line = matcher.replaceAll("");
-            }
+            line = CSourceLineScanner.removeSingleLineComments(line);
             // Remove multi line comments
             if (isMultilineComment) {
                 int index = line.indexOf("*/");
@@ -376,7 +1049,7 @@ public class Application {
                     }
                     else if (!lineMemory[1].isBlank()) {
                         // Consider two lines
-                        String twoLines = lineMemory[1] + " " + lineMemory[0];
+                        CharSequence twoLines = joinLines(joinedLines, lineMemory[1], lineMemory[0]);
                         if (matchMethodDeclaration(twoLines, cSourceFile)) {
                             lineMemory = clearMemory();
                             foundMatch = true;
@@ -389,7 +1062,7 @@ public class Application {
                         }
                         else if (!lineMemory[1].isBlank() && !lineMemory[2].isBlank()) {
                             // Consider three lines
-                            String threeLines = lineMemory[2] + " " + lineMemory[1] + " " + lineMemory[0];
+                            CharSequence threeLines = joinLines(joinedLines, lineMemory[2], lineMemory[1], lineMemory[0]);
                             if (matchMethodDeclaration(threeLines, cSourceFile)) {
                                 lineMemory = clearMemory();
                                 foundMatch = true;
@@ -431,7 +1104,7 @@ public class Application {
                             lineMemory = clearMemory();
                         }
                         else if (!foundMatch && !lineMemory[1].isBlank()) {
-                            String twoLines = lineMemory[1] + " " + lineMemory[0];
+                            CharSequence twoLines = joinLines(joinedLines, lineMemory[1], lineMemory[0]);
                             if (matchMethodInvokation(twoLines, cSourceFile)) {
                                 lineMemory = clearMemory();
                             }
@@ -451,69 +1124,75 @@ public class Application {
         if (nrOfOpenCurlyBraces != 0) {
             throw new RuntimeException("Dangling curly brace after or near method '" + methodName + "' in file name '" + fileNameName + "'.");
         }
+        cSourceFile.setNrOfLines(nrOfLines);
+        statistics.addLines(nrOfLines);
         return cSourceFile;
     }
 
-    boolean matchIncludeStatement(String line, CSourceFile cSourceFile) {
-        Matcher matcher = includePattern.matcher(line);
-        if (matcher.matches()) {
-            String includeHeaderFile = matcher.group(1);
+    boolean matchIncludeStatement(CharSequence line, CSourceFile cSourceFile) {
+        LineScanEvent lineScanEvent = FlightRecorderEvents.beginLineScan();
+        String includeHeaderFile = CSourceLineScanner.matchInclude(line);
+        FlightRecorderEvents.endLineScan(lineScanEvent, "include", line, cSourceFile,
+                !Objects.isNull(includeHeaderFile));
+        if (!Objects.isNull(includeHeaderFile)) {
             cSourceFile.addIncludeHeaderFile(includeHeaderFile);
             return true;
         }
         return false;
     }
 
-    boolean matchMethodDeclaration(String line, CSourceFile cSourceFile) {
-        Matcher matcher = methodDeclarationPattern.matcher(line);
-        if (matcher.matches()) {
-            String methodName = matcher.group(1);
+    boolean matchMethodDeclaration(CharSequence line, CSourceFile cSourceFile) {
+        LineScanEvent lineScanEvent = FlightRecorderEvents.beginLineScan();
+        String methodName = CSourceLineScanner.matchMethodDeclaration(line);
+        FlightRecorderEvents.endLineScan(lineScanEvent, "methodDeclaration", line, cSourceFile,
+                !Objects.isNull(methodName));
+        if (!Objects.isNull(methodName)) {
             cSourceFile.addMethodDeclaration(methodName);
             return true;
         }
         return false;
     }
 
-    boolean matchMethodDefinition(String line, CSourceFile cSourceFile) {
-        Matcher matcher = methodDefinitionPattern.matcher(line);
-        if (matcher.matches()) {
-            String methodName = matcher.group(1);
+    boolean matchMethodDefinition(CharSequence line, CSourceFile cSourceFile) {
+        LineScanEvent lineScanEvent = FlightRecorderEvents.beginLineScan();
+        String methodName = CSourceLineScanner.matchMethodDefinition(line);
+        FlightRecorderEvents.endLineScan(lineScanEvent, "methodDefinition", line, cSourceFile,
+                !Objects.isNull(methodName));
+        if (!Objects.isNull(methodName)) {
             cSourceFile.addMethodImplementation(methodName);
             return true;
         }
         return false;
     }
 
-    boolean matchCurlyBracesClose(String line) {
-        Matcher matcher = methodCurlyBracesClose.matcher(line);
-        if (matcher.matches()) {
-            return true;
-        }
-        return false;
+    boolean matchCurlyBracesClose(CharSequence line) {
+        return CSourceLineScanner.isCurlyBracesClose(line);
     }
 
-    boolean matchCurlyBracesOpen(String line) {
-        Matcher matcher = methodCurlyBracesOpen.matcher(line);
-        if (matcher.matches()) {
-            return true;
-        }
-        return false;
+    boolean matchCurlyBracesOpen(CharSequence line) {
+        return CSourceLineScanner.isCurlyBracesOpen(line);
     }
 
-    boolean matchMethodInvokation(String line, CSourceFile cSourceFile) {
-        Matcher matcher = methodInvokation.matcher(line);
-        if (matcher.matches()) {
-            matcher = methodInvokarionName.matcher(line);
-            while (matcher.find()) {
-                String methodName = matcher.group(1);
-                cSourceFile.addMethodInvokation(methodName);
-            }
-            return true;
+    boolean matchMethodInvokation(CharSequence line, CSourceFile cSourceFile) {
+        LineScanEvent lineScanEvent = FlightRecorderEvents.beginLineScan();
+        boolean isMethodInvokation = CSourceLineScanner.isMethodInvokation(line);
+        if (isMethodInvokation) {
+            CSourceLineScanner.findMethodInvokationNames(line, cSourceFile::addMethodInvokation);
         }
-        return false;
+        FlightRecorderEvents.endLineScan(lineScanEvent, "methodInvokation", line, cSourceFile, isMethodInvokation);
+        return isMethodInvokation;
     }
 
+    // Joins the lines, separated by a space, into the reused string builder.
+    CharSequence joinLines(StringBuilder joinedLines, String line1, String line2) {
+        joinedLines.setLength(0);
+        return joinedLines.append(line1).append(' ').append(line2);
+    }
 
+    CharSequence joinLines(StringBuilder joinedLines, String line1, String line2, String line3) {
+        joinLines(joinedLines, line1, line2);
+        return joinedLines.append(' ').append(line3);
+    }
 
     String[] clearMemory() {
         String[] array = {"", "", ""};
@@ -528,22 +1207,20 @@ public class Application {
 
     Collection<Path> fetchCFiles() throws IOException {
         printVerbose("Fetch C Files.");
-        Collection<Path> paths = new LinkedList<>();
-        try (Stream<Path> entries = Files.walk(inputPath)) {
-            entries.forEach( p -> {
-                if (Files.isRegularFile(p)) {
-                    if (p.toString().endsWith(".h") || p.toString().endsWith(".c")) {
-                        paths.add(p);
-                    }
-                }
-            });
+        Collection<Path> paths;
+        ForkJoinPool forkJoinPool = new ForkJoinPool(nrOfThreads);
+        try {
+            paths = new CSourceFileWalker(forkJoinPool, statistics).walk(inputPath);
+        }
+        finally {
+            forkJoinPool.shutdown();
         }
 
         // Verbose output
-        printVerbose("Fetched " + paths.size() + " of paths.");
+        printVerbose(() -> "Fetched " + paths.size() + " of paths.");
         if (verbose) {
             for (Path path : paths) {
-                System.out.println("> " + path.toString());
+                Log.global().println("> " + path.toString());
             }
         }
 
@@ -552,45 +1229,115 @@ public class Application {
 
     void verifyParameters() {
         printVerbose("Verify Parameters.");
-        if (Objects.isNull(input) || input.isBlank()) {
-            printError("Parameter --input is mandatory.");
+        if (Objects.isNull(loadModelFile) || loadModelFile.isBlank()) {
+            if (Objects.isNull(input) || input.isBlank()) {
+                printError("Parameter --input is mandatory.");
+                System.exit(1);
+            }
+        }
+        else if (!Files.isRegularFile(Path.of(loadModelFile))) {
+            printError("Model file '" + loadModelFile + "' does not exist. Check spelling.");
             System.exit(1);
         }
         if (Objects.isNull(output) || output.isBlank()) {
             printError("Parameter --output is mandatory.");
             System.exit(1);
         }
+        if (nrOfThreads < 1) {
+            printError("Parameter --threads must be at least 1.");
+            System.exit(1);
+        }
+        if (nrOfIoThreads < 0) {
+            printError("Parameter --io-threads can not be negative.");
+            System.exit(1);
+        }
+        if (!cacheDirectory.isBlank() && Files.exists(Path.of(cacheDirectory)) &&
+                !Files.isDirectory(Path.of(cacheDirectory))) {
+            printError("Cache path '" + cacheDirectory + "' is not a directory. Check it.");
+            System.exit(1);
+        }
 
-        inputPath = Path.of(input);
-        if (Files.notExists(inputPath)) {
-            printError("Input path '" + input + "' does not exist. Check spelling.");
+        if (maxDepth < 0 || maxNodes < 0 || maxOutputBytes < 0) {
+            printError("Parameters --max-depth, --max-nodes and --max-output-bytes can not be negative.");
+            System.exit(1);
+        }
+        if (lazy && (implementingSourceFileName.isBlank() || isBatchMode() || !loadModelFile.isBlank())) {
+            printError("Parameter --lazy requires --source, and can not be used with more than one --method, " +
+                    "--methods-file or --load-model.");
+            System.exit(1);
+        }
+        for (String startingMethodName : startingMethodNames) {
+            if (!StartMethod.isMethodName(startingMethodName)) {
+                printError("Parameter --method '" + startingMethodName + "' is not a C identifier. Check spelling.");
+                System.exit(1);
+            }
+        }
+        if (!implementingSourceFileName.isBlank() && !StartMethod.isSourceFileName(implementingSourceFileName)) {
+            printError("Parameter --source '" + implementingSourceFileName + "' is not a file name. Check spelling.");
+            System.exit(1);
+        }
+        if (startingMethodNames.size() > 1 && !implementingSourceFileName.isBlank()) {
+            printError("Parameter --source can not be used with more than one --method. Use --methods-file to " +
+                    "give the source file name of each method.");
             System.exit(1);
         }
-        if (!Files.isDirectory(inputPath)) {
-            printError("Input path '" + input + "' is not a directory. Check it.");
+        if (!methodsFile.isBlank() && !Files.isRegularFile(Path.of(methodsFile))) {
+            printError("Methods file '" + methodsFile + "' does not exist. Check spelling.");
             System.exit(1);
         }
 
+        if (!input.isBlank()) {
+            inputPath = Path.of(input);
+            if (Files.notExists(inputPath)) {
+                printError("Input path '" + input + "' does not exist. Check spelling.");
+                System.exit(1);
+            }
+            if (!Files.isDirectory(inputPath)) {
+                printError("Input path '" + input + "' is not a directory. Check it.");
+                System.exit(1);
+            }
+        }
+
         outputPath = Path.of(output);
-        if (Files.exists(outputPath)) {
+        if (isBatchMode()) {
+            if (Files.exists(outputPath) && !Files.isDirectory(outputPath)) {
+                printError("Output path '" + output + "' is not a directory. Check it.");
+                System.exit(1);
+            }
+        }
+        else if (Files.exists(outputPath)) {
             printError("Output path '" + output + "' does exist. Check it.");
             System.exit(1);
         }
     }
 
+    // Info and error messages are printed after the verbose messages before them.
     static void printInfo(String message) {
+        Log.global().flush();
         System.out.println("[INFO] " + message);
     }
 
     static void printError(String message) {
+        Log.global().flush();
         System.out.println("[ERROR] " + message);
     }
 
     void printVerbose(String message) {
         if (verbose) {
-            System.out.println("[VERBOSE] " + message);
+            Log.global().println("[VERBOSE] " + message);
+        }
+    }
+
+    /**
+     * The message is only made if verbose output is on, so messages built from several parts cost nothing otherwise.
+     */
+    void printVerbose(Supplier<String> message) {
+        if (verbose) {
+            Log.global().println("[VERBOSE] " + message.get());
         }
     }
 }
 
 enum STATE {OUTSIDE_METHOD_DEFINITION, INSIDE_METHOD_DEFINITION};
+
+enum IO_MODE {STREAM, MMAP};
@@ -0,0 +1,82 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the lines of an ISO-8859-1 encoded byte buffer. A line ends with '\n', '\r' or "\r\n", the same way
+ * as for BufferedReader.readLine. Since one byte is one character, no charset decoder is involved; each line is copied
+ * straight from the buffer into its String.
+ */
+public class ByteBufferLineIterator implements Iterator<String> {
+
+    private ByteBuffer buffer;
+    private int position;
+    private byte[] lineBytes = new byte[256];
+
+    public ByteBufferLineIterator(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.position = buffer.position();
+    }
+
+    /**
+     * Memory maps the file and returns an iterator over its lines. The mapping stays valid after the file channel
+     * is closed.
+     */
+    public static ByteBufferLineIterator map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new ByteBufferLineIterator(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Updates the digest with the bytes not yet iterated over, without moving the iterator.
+     */
+    public void updateDigest(MessageDigest digest) {
+        ByteBuffer remaining = buffer.duplicate();
+        remaining.position(position);
+        digest.update(remaining);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < buffer.limit();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int limit = buffer.limit();
+        int start = position;
+        int end = start;
+        while (end < limit) {
+            byte b = buffer.get(end);
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            end++;
+        }
+        position = end;
+        if (position < limit) {
+            if (buffer.get(position) == '\r' && position + 1 < limit && buffer.get(position + 1) == '\n') {
+                position++;
+            }
+            position++;
+        }
+        int length = end - start;
+        if (length > lineBytes.length) {
+            lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+        }
+        buffer.get(start, lineBytes, 0, length);
+        return new String(lineBytes, 0, length, StandardCharsets.ISO_8859_1);
+    }
+}
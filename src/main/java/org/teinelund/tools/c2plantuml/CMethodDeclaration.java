@@ -1,19 +1,26 @@
 package org.teinelund.tools.c2plantuml;
 
-import java.util.Objects;
-
 public class CMethodDeclaration {
 
     private String name;
+    private CSourceFile cSourceFile;
 
-    public CMethodDeclaration(String name) {
-        this.name = name;
+    public CMethodDeclaration(String name, CSourceFile cSourceFile) {
+        this.name = NameTable.global().intern(name);
+        this.cSourceFile = cSourceFile;
     }
 
     public String getName() {
         return name;
     }
 
+    public CSourceFile getSourceFile() {
+        return cSourceFile;
+    }
+
+    /**
+     * Method declarations are equal if they have the same name and are declared in the same file.
+     */
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -23,6 +30,11 @@ public class CMethodDeclaration {
             return false;
         }
         CMethodDeclaration other = (CMethodDeclaration) obj;
-        return name == null ? other.name == null : name.equals(other.name);
+        return cSourceFile == other.cSourceFile && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + System.identityHashCode(cSourceFile);
     }
 }
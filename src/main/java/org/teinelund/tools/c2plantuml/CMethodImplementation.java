@@ -1,23 +1,31 @@
 package org.teinelund.tools.c2plantuml;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 public class CMethodImplementation {
 
     private String name;
+    private int nameId;
     private CSourceFile cSourceFile;
-    private List<String> methodInvokationNames = new ArrayList<>();
+    // Ids in the global name table.
+    private int[] methodInvokationNameIds = new int[4];
+    private int nrOfMethodInvokationNames = 0;
     private List<CMethodImplementation> methodInvokations = new ArrayList<>();
-    private int touch = 0;
 
     public CMethodImplementation(String methodName, CSourceFile cSourceFile) {
-        this.name = methodName;
+        this.nameId = NameTable.global().id(methodName);
+        this.name = NameTable.global().name(this.nameId);
         this.cSourceFile = cSourceFile;
     }
 
+    /**
+     * Method implementations are equal if they have the same name and are implemented in the same source file. Source
+     * files are compared by identity, since files in different directories may have the same name.
+     */
     @Override
     public boolean equals(Object obj) {
         if (obj == this) {
@@ -27,7 +35,12 @@ public class CMethodImplementation {
             return false;
         }
         CMethodImplementation other = (CMethodImplementation) obj;
-        return name == null ? other.name == null : name.equals(other.name);
+        return cSourceFile == other.cSourceFile && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + System.identityHashCode(cSourceFile);
     }
 
     public CSourceFile getSourceFile() {
@@ -38,31 +51,50 @@ public class CMethodImplementation {
         return name;
     }
 
+    public int getNameId() {
+        return nameId;
+    }
+
     public void addMethodInvokation(String methodName) {
-        methodInvokationNames.add(methodName);
+        if (nrOfMethodInvokationNames == methodInvokationNameIds.length) {
+            methodInvokationNameIds = Arrays.copyOf(methodInvokationNameIds, nrOfMethodInvokationNames * 2);
+        }
+        methodInvokationNameIds[nrOfMethodInvokationNames++] = NameTable.global().id(methodName);
     }
 
+    /**
+     * Returns a view of the method invokation names, looked up in the global name table.
+     */
     public List<String> getMethodInvokationNames() {
-        return Collections.unmodifiableList(methodInvokationNames);
-    }
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return NameTable.global().name(getMethodInvokationNameId(index));
+            }
 
-    public void addMethodInvokation(CMethodImplementation cMethodImplementation) {
-        methodInvokations.add(cMethodImplementation);
+            @Override
+            public int size() {
+                return nrOfMethodInvokationNames;
+            }
+        };
     }
 
-    public List<CMethodImplementation> getMethodInvokations() {
-        return Collections.unmodifiableList(methodInvokations);
+    public int getNrOfMethodInvokationNames() {
+        return nrOfMethodInvokationNames;
     }
 
-    public void incTouch() {
-        touch++;
+    public int getMethodInvokationNameId(int index) {
+        if (index >= nrOfMethodInvokationNames) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return methodInvokationNameIds[index];
     }
 
-    public void decTouch() {
-        touch--;
+    public void addMethodInvokation(CMethodImplementation cMethodImplementation) {
+        methodInvokations.add(cMethodImplementation);
     }
 
-    public int getTouch() {
-        return touch;
+    public List<CMethodImplementation> getMethodInvokations() {
+        return Collections.unmodifiableList(methodInvokations);
     }
 }
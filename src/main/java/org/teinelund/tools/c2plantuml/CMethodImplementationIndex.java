@@ -0,0 +1,60 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Method implementations indexed by method name, and for each name by the source file implementing it.
+ * Built once after parsing, so resolving a method invokation is a couple of hash lookups instead of a scan.
+ */
+public class CMethodImplementationIndex {
+
+    private Map<String, Map<CSourceFile, List<CMethodImplementation>>> methodImplementations = new HashMap<>();
+
+    public CMethodImplementationIndex(Collection<CSourceFile> cSourceFiles) {
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            for (CMethodImplementation cMethodImplementation : cSourceFile.getMethodDefinitions()) {
+                methodImplementations
+                        .computeIfAbsent(cMethodImplementation.getName(), name -> new LinkedHashMap<>())
+                        .computeIfAbsent(cSourceFile, file -> new ArrayList<>(1))
+                        .add(cMethodImplementation);
+            }
+        }
+    }
+
+    /**
+     * Returns the implementations of the method name in the given source file, in definition order.
+     */
+    public List<CMethodImplementation> find(String methodName, CSourceFile cSourceFile) {
+        Map<CSourceFile, List<CMethodImplementation>> implementationsByFile = methodImplementations.get(methodName);
+        if (Objects.isNull(implementationsByFile)) {
+            return Collections.emptyList();
+        }
+        return implementationsByFile.getOrDefault(cSourceFile, Collections.emptyList());
+    }
+
+    /**
+     * Returns all implementations of the method name, in source file order.
+     */
+    public List<CMethodImplementation> find(String methodName) {
+        Map<CSourceFile, List<CMethodImplementation>> implementationsByFile = methodImplementations.get(methodName);
+        if (Objects.isNull(implementationsByFile)) {
+            return Collections.emptyList();
+        }
+        List<CMethodImplementation> result = new ArrayList<>();
+        for (List<CMethodImplementation> implementations : implementationsByFile.values()) {
+            result.addAll(implementations);
+        }
+        return result;
+    }
+
+    public boolean contains(String methodName) {
+        return methodImplementations.containsKey(methodName);
+    }
+}
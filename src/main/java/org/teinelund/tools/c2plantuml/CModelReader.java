@@ -0,0 +1,147 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads header files and source files written by CModelWriter, including the connections made by weaving. A broken
+ * model, e.g. a truncated or partly overwritten file, gives an IOException. Every counted item takes at least one
+ * byte, so a count larger than the bytes left of the model is rejected before anything is allocated for it.
+ */
+public class CModelReader {
+
+    private DataInputStream in;
+    private long length;
+    private long position = 0;
+    private String[] strings;
+    private List<CSourceFile> files = new ArrayList<>();
+    private List<CMethodImplementation> methodImplementations = new ArrayList<>();
+
+    public CModelReader(InputStream in) {
+        this(in, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param length number of bytes of the model in the input stream, or more, used to check counts.
+     */
+    public CModelReader(InputStream in, long length) {
+        this.in = new DataInputStream(in);
+        this.length = length;
+    }
+
+    /**
+     * Reads the files and adds them to the given collections, without closing the input stream.
+     */
+    public void read(Collection<CSourceFile> cHeaderFiles, Collection<CSourceFile> cSourceFiles) throws IOException {
+        if (in.readInt() != CModelWriter.MAGIC) {
+            throw new IOException("Not a c2plantuml model.");
+        }
+        int version = in.readInt();
+        if (version != CModelWriter.VERSION) {
+            throw new IOException("Unsupported c2plantuml model version " + version + ".");
+        }
+        position += 8;
+        strings = new String[readCount()];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readCount();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            in.readFully(bytes, 0, length);
+            position += length;
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        List<CSourceFile> headerFiles = readFiles();
+        List<CSourceFile> sourceFiles = readFiles();
+        for (CSourceFile cSourceFile : files) {
+            int sourceFileIndex = readVarInt();
+            if (sourceFileIndex > 0) {
+                cSourceFile.addSourceFile(file(sourceFileIndex - 1));
+            }
+            for (int i = readCount(); i > 0; i--) {
+                cSourceFile.addHeaderFile(file(readVarInt()));
+            }
+        }
+        for (CMethodImplementation methodImplementation : methodImplementations) {
+            for (int i = readCount(); i > 0; i--) {
+                methodImplementation.addMethodInvokation(methodImplementation(readVarInt()));
+            }
+        }
+        cHeaderFiles.addAll(headerFiles);
+        cSourceFiles.addAll(sourceFiles);
+    }
+
+    private List<CSourceFile> readFiles() throws IOException {
+        int nrOfFiles = readCount();
+        List<CSourceFile> cSourceFiles = new ArrayList<>(nrOfFiles);
+        for (int i = 0; i < nrOfFiles; i++) {
+            CSourceFile cSourceFile = new CSourceFile(readString());
+            for (int j = readCount(); j > 0; j--) {
+                cSourceFile.addIncludeHeaderFile(readString());
+            }
+            for (int j = readCount(); j > 0; j--) {
+                cSourceFile.addMethodDeclaration(readString());
+            }
+            for (int j = readCount(); j > 0; j--) {
+                cSourceFile.addMethodImplementation(readString());
+                for (int k = readCount(); k > 0; k--) {
+                    cSourceFile.addMethodInvokation(readString());
+                }
+            }
+            methodImplementations.addAll(cSourceFile.getMethodDefinitions());
+            cSourceFiles.add(cSourceFile);
+            files.add(cSourceFile);
+        }
+        return cSourceFiles;
+    }
+
+    private CSourceFile file(int index) throws IOException {
+        if (index < 0 || index >= files.size()) {
+            throw new IOException("File index " + index + " is out of range.");
+        }
+        return files.get(index);
+    }
+
+    private CMethodImplementation methodImplementation(int index) throws IOException {
+        if (index < 0 || index >= methodImplementations.size()) {
+            throw new IOException("Method implementation index " + index + " is out of range.");
+        }
+        return methodImplementations.get(index);
+    }
+
+    private String readString() throws IOException {
+        int index = readVarInt();
+        if (index < 0 || index >= strings.length) {
+            throw new IOException("String index " + index + " is out of range.");
+        }
+        return strings[index];
+    }
+
+    // A count of items that each take at least one byte.
+    private int readCount() throws IOException {
+        int count = readVarInt();
+        if (count < 0 || count > length - position) {
+            throw new IOException("Count " + count + " is out of range.");
+        }
+        return count;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            position++;
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer.");
+    }
+}
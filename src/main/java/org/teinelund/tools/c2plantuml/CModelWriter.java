@@ -0,0 +1,165 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Writes header files and source files, including the connections made by weaving, in a compact binary format.
+ *
+ * All names are written once in a string table and referred to by index. Files and method implementations are
+ * numbered in the order they are written (header files first), and connections between them are written as those
+ * numbers. All counts and indices are unsigned variable length integers, seven bits per byte.
+ *
+ * <pre>
+ * model:          MAGIC VERSION strings files(header files) files(source files) connections
+ * strings:        count (length utf-8-bytes)*
+ * files:          count (name includes declarations implementations)*
+ * implementation: name invokation-names
+ * connections:    for each file: source-file+1 (0 if none) header-files
+ *                 for each implementation: method-invokations
+ * </pre>
+ */
+public class CModelWriter {
+
+    static final int MAGIC = 0x4332504D;
+    static final int VERSION = 1;
+
+    private DataOutputStream out;
+    private Map<String, Integer> stringIndices = new HashMap<>();
+    private List<String> strings = new ArrayList<>();
+    private Map<CSourceFile, Integer> fileIndices = new IdentityHashMap<>();
+    private Map<CMethodImplementation, Integer> methodImplementationIndices = new IdentityHashMap<>();
+
+    public CModelWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    /**
+     * Writes the files and flushes, without closing the output stream.
+     */
+    public void write(Collection<CSourceFile> cHeaderFiles, Collection<CSourceFile> cSourceFiles) throws IOException {
+        indexFiles(cHeaderFiles);
+        indexFiles(cSourceFiles);
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeVarInt(strings.size());
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+        writeFiles(cHeaderFiles);
+        writeFiles(cSourceFiles);
+        writeFileConnections(cHeaderFiles);
+        writeFileConnections(cSourceFiles);
+        writeMethodInvokations(cHeaderFiles);
+        writeMethodInvokations(cSourceFiles);
+        out.flush();
+    }
+
+    private void indexFiles(Collection<CSourceFile> cSourceFiles) {
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            fileIndices.put(cSourceFile, fileIndices.size());
+            indexString(cSourceFile.getFileName());
+            for (String includeHeaderFile : cSourceFile.getIncludeHeaderFiles()) {
+                indexString(includeHeaderFile);
+            }
+            for (CMethodDeclaration methodDeclaration : cSourceFile.getMethodDeclarations()) {
+                indexString(methodDeclaration.getName());
+            }
+            for (CMethodImplementation methodImplementation : cSourceFile.getMethodDefinitions()) {
+                methodImplementationIndices.put(methodImplementation, methodImplementationIndices.size());
+                indexString(methodImplementation.getName());
+                for (String methodInvokationName : methodImplementation.getMethodInvokationNames()) {
+                    indexString(methodInvokationName);
+                }
+            }
+        }
+    }
+
+    private void indexString(String string) {
+        if (!stringIndices.containsKey(string)) {
+            stringIndices.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private void writeFiles(Collection<CSourceFile> cSourceFiles) throws IOException {
+        writeVarInt(cSourceFiles.size());
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            writeString(cSourceFile.getFileName());
+            writeVarInt(cSourceFile.getIncludeHeaderFiles().size());
+            for (String includeHeaderFile : cSourceFile.getIncludeHeaderFiles()) {
+                writeString(includeHeaderFile);
+            }
+            writeVarInt(cSourceFile.getMethodDeclarations().size());
+            for (CMethodDeclaration methodDeclaration : cSourceFile.getMethodDeclarations()) {
+                writeString(methodDeclaration.getName());
+            }
+            writeVarInt(cSourceFile.getMethodDefinitions().size());
+            for (CMethodImplementation methodImplementation : cSourceFile.getMethodDefinitions()) {
+                writeString(methodImplementation.getName());
+                writeVarInt(methodImplementation.getMethodInvokationNames().size());
+                for (String methodInvokationName : methodImplementation.getMethodInvokationNames()) {
+                    writeString(methodInvokationName);
+                }
+            }
+        }
+    }
+
+    private void writeFileConnections(Collection<CSourceFile> cSourceFiles) throws IOException {
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            writeVarInt(Objects.isNull(cSourceFile.getcSourceFile()) ? 0 : fileIndex(cSourceFile.getcSourceFile()) + 1);
+            writeVarInt(cSourceFile.getHeaderFiles().size());
+            for (CSourceFile cHeaderFile : cSourceFile.getHeaderFiles()) {
+                writeVarInt(fileIndex(cHeaderFile));
+            }
+        }
+    }
+
+    private void writeMethodInvokations(Collection<CSourceFile> cSourceFiles) throws IOException {
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            for (CMethodImplementation methodImplementation : cSourceFile.getMethodDefinitions()) {
+                writeVarInt(methodImplementation.getMethodInvokations().size());
+                for (CMethodImplementation invokedMethodImplementation : methodImplementation.getMethodInvokations()) {
+                    Integer index = methodImplementationIndices.get(invokedMethodImplementation);
+                    if (Objects.isNull(index)) {
+                        throw new IllegalStateException("Method '" + invokedMethodImplementation.getName() +
+                                "' invoked from '" + methodImplementation.getName() + "' is not in the model.");
+                    }
+                    writeVarInt(index);
+                }
+            }
+        }
+    }
+
+    private int fileIndex(CSourceFile cSourceFile) {
+        Integer index = fileIndices.get(cSourceFile);
+        if (Objects.isNull(index)) {
+            throw new IllegalStateException("File '" + cSourceFile.getFileName() + "' is not in the model.");
+        }
+        return index;
+    }
+
+    private void writeString(String string) throws IOException {
+        writeVarInt(stringIndices.get(string));
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
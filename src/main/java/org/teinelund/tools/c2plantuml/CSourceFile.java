@@ -2,17 +2,23 @@ package org.teinelund.tools.c2plantuml;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class CSourceFile {
 
     private String sourceFileName;
+    private int sourceFileNameId;
 
     private List<String> includeHeaderFiles = new ArrayList<>();
     private List<CMethodDeclaration> methodDeclarations = new ArrayList<>();
+    private Map<String, CMethodDeclaration> methodDeclarationsByName = new HashMap<>();
     private List<CMethodImplementation> methodImplementations = new ArrayList<>();
+    private Map<String, CMethodImplementation> methodImplementationsByName = new HashMap<>();
     private CMethodImplementation currentMethodImplementation = null;
+    private int nrOfLines = 0;
 
     // If this is a header file, bellow contains the method implementations.
     private CSourceFile cSourceFile;
@@ -20,29 +26,45 @@ public class CSourceFile {
     private List<CSourceFile> headerFiles = new ArrayList<>();
 
     public CSourceFile(String sourceFileName) {
-        this.sourceFileName = sourceFileName;
+        this.sourceFileNameId = NameTable.global().id(sourceFileName);
+        this.sourceFileName = NameTable.global().name(this.sourceFileNameId);
     }
 
     public void addIncludeHeaderFile(String includeHeaderFile) {
-        includeHeaderFiles.add(includeHeaderFile);
+        includeHeaderFiles.add(NameTable.global().intern(includeHeaderFile));
     }
 
     public List<String> getIncludeHeaderFiles() {
         return Collections.unmodifiableList(includeHeaderFiles);
     }
 
+    // A method declared more than once is only added once.
     public void addMethodDeclaration(String methodName) {
-        CMethodDeclaration methodDeclaration = new CMethodDeclaration(methodName);
-        methodDeclarations.add(methodDeclaration);
+        if (!methodDeclarationsByName.containsKey(methodName)) {
+            CMethodDeclaration methodDeclaration = new CMethodDeclaration(methodName, this);
+            methodDeclarations.add(methodDeclaration);
+            methodDeclarationsByName.put(methodDeclaration.getName(), methodDeclaration);
+        }
     }
 
     public List<CMethodDeclaration> getMethodDeclarations() {
         return Collections.unmodifiableList(methodDeclarations);
     }
 
+    // Returns null if the method is not declared.
+    public CMethodDeclaration getMethodDeclaration(String methodName) {
+        return methodDeclarationsByName.get(methodName);
+    }
+
+    // A method implemented more than once (e.g. in different #ifdef branches) is merged into the first
+    // implementation, which gets the method invokations of all of them.
     public void addMethodImplementation(String methodName) {
-        CMethodImplementation cMethodImplementation = new CMethodImplementation(methodName, this);
-        methodImplementations.add(cMethodImplementation);
+        CMethodImplementation cMethodImplementation = methodImplementationsByName.get(methodName);
+        if (Objects.isNull(cMethodImplementation)) {
+            cMethodImplementation = new CMethodImplementation(methodName, this);
+            methodImplementations.add(cMethodImplementation);
+            methodImplementationsByName.put(cMethodImplementation.getName(), cMethodImplementation);
+        }
         currentMethodImplementation = cMethodImplementation;
     }
 
@@ -50,6 +72,11 @@ public class CSourceFile {
         return Collections.unmodifiableList(methodImplementations);
     }
 
+    // Returns null if the method is not implemented.
+    public CMethodImplementation getMethodImplementation(String methodName) {
+        return methodImplementationsByName.get(methodName);
+    }
+
     public void addMethodInvokation(String methodName) {
         if (Objects.isNull(currentMethodImplementation)) {
             throw new RuntimeException("Method invokation outside method definition. Method invokation: '" + methodName + "'.");
@@ -57,10 +84,23 @@ public class CSourceFile {
         currentMethodImplementation.addMethodInvokation(methodName);
     }
 
+    // Set by the parser. 0 for a file loaded from a model file.
+    public void setNrOfLines(int nrOfLines) {
+        this.nrOfLines = nrOfLines;
+    }
+
+    public int getNrOfLines() {
+        return nrOfLines;
+    }
+
     public String getFileName() {
         return sourceFileName;
     }
 
+    public int getFileNameId() {
+        return sourceFileNameId;
+    }
+
     // If this is a header file, bellow contains the method implementations.
     public void addSourceFile(CSourceFile cSourceFile) {
         this.cSourceFile = cSourceFile;
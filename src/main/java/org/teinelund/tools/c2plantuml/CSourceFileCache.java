@@ -0,0 +1,166 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * On disk cache of parsed source files, one entry per source file path. An entry is valid as long as the size and
+ * modification time of the source file are unchanged. If only the modification time has changed (e.g. after a
+ * checkout), the content hash stored in the entry decides. The parsed source file is stored in the CModelWriter
+ * format, after its number of lines, which that format leaves out. VERSION is the version of the entry format; an entry also holds the version of the parser that made it,
+ * and entries made by another parser version are misses.
+ */
+public class CSourceFileCache {
+
+    private static final int MAGIC = 0x43325055;
+    private static final int VERSION = 4;
+    private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+
+    private Path cacheDirectory;
+    private int parserVersion;
+
+    public CSourceFileCache(Path cacheDirectory) throws IOException {
+        this(cacheDirectory, Application.PARSER_VERSION);
+    }
+
+    CSourceFileCache(Path cacheDirectory, int parserVersion) throws IOException {
+        this.cacheDirectory = cacheDirectory;
+        this.parserVersion = parserVersion;
+        Files.createDirectories(cacheDirectory);
+    }
+
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance(CONTENT_DIGEST_ALGORITHM);
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the cached source file for the path, or null if there is no valid entry. The attributes must be read
+     * before the source file content is.
+     */
+    public CSourceFile get(Path path, BasicFileAttributes attributes) throws IOException {
+        Path entryPath = entryPath(path);
+        Entry entry;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entryPath)))) {
+            entry = readEntry(in, Files.size(entryPath));
+        }
+        catch (IOException e) {
+            // A missing, truncated or otherwise broken entry is a cache miss. It is overwritten after parsing.
+            return null;
+        }
+        if (Objects.isNull(entry) || !entry.path.equals(key(path)) || entry.size != attributes.size()) {
+            return null;
+        }
+        long lastModifiedTime = attributes.lastModifiedTime().toMillis();
+        if (entry.lastModifiedTime == lastModifiedTime) {
+            return entry.cSourceFile;
+        }
+        if (!Arrays.equals(entry.contentHash, contentHash(path))) {
+            return null;
+        }
+        put(path, attributes, entry.contentHash, entry.cSourceFile);
+        return entry.cSourceFile;
+    }
+
+    /**
+     * Stores the parsed source file. The attributes must have been read before the source file content was, so a
+     * change made while parsing is detected next time.
+     */
+    public void put(Path path, BasicFileAttributes attributes, byte[] contentHash, CSourceFile cSourceFile)
+            throws IOException {
+        Path entryPath = entryPath(path);
+        Path temporaryPath = Files.createTempFile(cacheDirectory, entryPath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryPath)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(parserVersion);
+                out.writeUTF(key(path));
+                out.writeLong(attributes.size());
+                out.writeLong(attributes.lastModifiedTime().toMillis());
+                out.writeShort(contentHash.length);
+                out.write(contentHash);
+                out.writeInt(cSourceFile.getNrOfLines());
+                new CModelWriter(out).write(List.of(), List.of(cSourceFile));
+            }
+            Files.move(temporaryPath, entryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    static byte[] contentHash(Path path) throws IOException {
+        MessageDigest digest = newContentDigest();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = Files.newInputStream(path)) {
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, count);
+            }
+        }
+        return digest.digest();
+    }
+
+    Path entryPath(Path path) {
+        byte[] hash = newContentDigest().digest(key(path).getBytes(StandardCharsets.UTF_8));
+        StringBuilder fileName = new StringBuilder(hash.length * 2 + 4);
+        for (byte b : hash) {
+            fileName.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return cacheDirectory.resolve(fileName.append(".bin").toString());
+    }
+
+    private String key(Path path) {
+        return path.toAbsolutePath().normalize().toString();
+    }
+
+    // The model in the entry is at most entrySize bytes.
+    private Entry readEntry(DataInputStream in, long entrySize) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != parserVersion) {
+            return null;
+        }
+        Entry entry = new Entry();
+        entry.path = in.readUTF();
+        entry.size = in.readLong();
+        entry.lastModifiedTime = in.readLong();
+        entry.contentHash = new byte[in.readUnsignedShort()];
+        in.readFully(entry.contentHash);
+        int nrOfLines = in.readInt();
+        List<CSourceFile> cSourceFiles = new ArrayList<>(1);
+        new CModelReader(in, entrySize).read(new ArrayList<>(), cSourceFiles);
+        if (cSourceFiles.size() != 1) {
+            return null;
+        }
+        entry.cSourceFile = cSourceFiles.get(0);
+        entry.cSourceFile.setNrOfLines(nrOfLines);
+        return entry;
+    }
+
+    private static class Entry {
+        String path;
+        long size;
+        long lastModifiedTime;
+        byte[] contentHash;
+        CSourceFile cSourceFile;
+    }
+}
@@ -0,0 +1,43 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The content of a source file, read by an I/O thread and waiting to be parsed. If the source file was found in the
+ * cache, there is no content, only the cached source file.
+ */
+public class CSourceFileContent {
+
+    private Path path;
+    private BasicFileAttributes attributes;
+    private byte[] content;
+    private CSourceFile cachedCSourceFile;
+
+    public CSourceFileContent(Path path, BasicFileAttributes attributes, byte[] content,
+                              CSourceFile cachedCSourceFile) {
+        this.path = path;
+        this.attributes = attributes;
+        this.content = content;
+        this.cachedCSourceFile = cachedCSourceFile;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the attributes read before the content, or null if there is no cache.
+     */
+    public BasicFileAttributes getAttributes() {
+        return attributes;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public CSourceFile getCachedCSourceFile() {
+        return cachedCSourceFile;
+    }
+}
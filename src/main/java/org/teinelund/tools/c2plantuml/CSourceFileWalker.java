@@ -0,0 +1,106 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Finds the header files and source files in a directory tree. Each directory is read by its own fork join task, so
+ * the directories are read in parallel. The attributes read when listing a directory decide whether an entry is a
+ * directory or a regular file; no further file system calls are made, except for symbolic links, which are followed
+ * for files but not for directories. The listing of each directory is measured as work of the current phase of the
+ * run statistics.
+ */
+public class CSourceFileWalker {
+
+    private ForkJoinPool forkJoinPool;
+    private RunStatistics statistics;
+
+    public CSourceFileWalker(ForkJoinPool forkJoinPool) {
+        this(forkJoinPool, new RunStatistics(false));
+    }
+
+    public CSourceFileWalker(ForkJoinPool forkJoinPool, RunStatistics statistics) {
+        this.forkJoinPool = forkJoinPool;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Returns the header files and source files in the directory tree, sorted.
+     */
+    public List<Path> walk(Path directory) throws IOException {
+        List<Path> paths = Collections.synchronizedList(new ArrayList<>());
+        walk(directory, paths::add);
+        List<Path> sortedPaths = new ArrayList<>(paths);
+        Collections.sort(sortedPaths);
+        return sortedPaths;
+    }
+
+    /**
+     * Passes each header file and source file in the directory tree to the sink as soon as it is found, in no
+     * particular order. The sink is called from several threads.
+     */
+    public void walk(Path directory, Consumer<Path> sink) throws IOException {
+        try {
+            forkJoinPool.invoke(new DirectoryTask(directory, sink, statistics));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static boolean isCSourceFileName(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(".h") || fileName.endsWith(".c");
+    }
+
+    private static class DirectoryTask extends RecursiveAction {
+        private Path directory;
+        private Consumer<Path> sink;
+        private RunStatistics statistics;
+
+        DirectoryTask(Path directory, Consumer<Path> sink, RunStatistics statistics) {
+            this.directory = directory;
+            this.sink = sink;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectoryTasks = new ArrayList<>();
+            try {
+                // The subdirectory tasks are measured by themselves, so they are invoked outside of the measured work.
+                statistics.measureWork(() -> Files.walkFileTree(directory, EnumSet.noneOf(FileVisitOption.class), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path path, BasicFileAttributes attributes) throws IOException {
+                        // With a max depth of 1, subdirectories are visited as files.
+                        if (attributes.isDirectory()) {
+                            subdirectoryTasks.add(new DirectoryTask(path, sink, statistics));
+                        }
+                        else if (isCSourceFileName(path) && (attributes.isRegularFile() ||
+                                attributes.isSymbolicLink() && Files.isRegularFile(path))) {
+                            sink.accept(path);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                }));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subdirectoryTasks);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.util.function.Consumer;
+
+/**
+ * Hand written scanners recognizing include statements, method declarations, method definitions, curly braces and
+ * method invokations in a line of C source code. Each scanner makes a single pass over the line (or a few passes
+ * from its ends), without backtracking, and only allocates the String it returns.
+ *
+ * The grammar recognized is the one the original regular expressions in Application described:
+ *
+ * include:      ^\s*#include "(.+)"\s*$
+ * declaration:  ^\s*(extern\s+)?(const\s+)?(static\s+)?((enum|struct|unsigned)\s+)?W\s+\*{0,2}\s*(ATTR\s+)?(W)\(.*\);\s*$
+ * definition:   ^\s*(static\s+)?(inline\s+)?((enum|struct|unsigned)\s+)?W\s+\*{0,2}\s*(ATTR\s+)?(W)\(.*\)\s*\{\s*$
+ * invokation:   ^\s*(return\s+)?(W\s*=\s*)?W\(.*?\).*;\s*$
+ *
+ * where W is [a-zA-Z0-9_]+ and ATTR is one of const_func, pure_func, safe_alloc, safe_malloc(n), safe_malloc2(n, n)
+ * and, for definitions only, printf_func(n, n).
+ */
+public class CSourceLineScanner {
+
+    private static final String[][] DECLARATION_KEYWORDS = {
+            {"extern"}, {"const"}, {"static"}, {"enum", "struct", "unsigned"}};
+
+    private static final String[][] DEFINITION_KEYWORDS = {
+            {"static"}, {"inline"}, {"enum", "struct", "unsigned"}};
+
+    private static final String[] ATTRIBUTES = {"const_func", "pure_func", "safe_alloc"};
+
+    private static final String INCLUDE = "#include \"";
+
+    private static final String RETURN = "return";
+
+    private CSourceLineScanner() {
+    }
+
+    /**
+     * Removes a comment starting and ending on the line, from the first comment start to the last comment end.
+     */
+    public static String removeSingleLineComments(String line) {
+        int start = line.indexOf("/*");
+        if (start < 0) {
+            return line;
+        }
+        int end = line.lastIndexOf("*/");
+        if (end < start + 2) {
+            return line;
+        }
+        return line.substring(0, start) + line.substring(end + 2);
+    }
+
+    /**
+     * Returns the header file name of an include statement, or null if the line is not an include statement.
+     */
+    public static String matchInclude(CharSequence line) {
+        int start = skipSpaces(line, 0) + INCLUDE.length();
+        int end = trimEnd(line, line.length());
+        if (!startsWith(line, start - INCLUDE.length(), INCLUDE) || end - 1 <= start || line.charAt(end - 1) != '"') {
+            return null;
+        }
+        return line.subSequence(start, end - 1).toString();
+    }
+
+    /**
+     * Returns the method name of a method declaration, or null if the line is not a method declaration.
+     */
+    public static String matchMethodDeclaration(CharSequence line) {
+        int end = trimEnd(line, line.length());
+        if (end < 2 || line.charAt(end - 1) != ';' || line.charAt(end - 2) != ')') {
+            return null;
+        }
+        return matchMethodSignature(line, end - 2, DECLARATION_KEYWORDS, false);
+    }
+
+    /**
+     * Returns the method name of a method definition, or null if the line is not a method definition.
+     */
+    public static String matchMethodDefinition(CharSequence line) {
+        int end = trimEnd(line, line.length());
+        if (end < 1 || line.charAt(end - 1) != '{') {
+            return null;
+        }
+        end = trimEnd(line, end - 1);
+        if (end < 1 || line.charAt(end - 1) != ')') {
+            return null;
+        }
+        return matchMethodSignature(line, end - 1, DEFINITION_KEYWORDS, true);
+    }
+
+    /**
+     * Returns true if the first non white space character of the line is a closing curly brace.
+     */
+    public static boolean isCurlyBracesClose(CharSequence line) {
+        int start = skipSpaces(line, 0);
+        return start < line.length() && line.charAt(start) == '}';
+    }
+
+    /**
+     * Returns true if the last non white space character of the line is an opening curly brace.
+     */
+    public static boolean isCurlyBracesOpen(CharSequence line) {
+        int end = trimEnd(line, line.length());
+        return end > 0 && line.charAt(end - 1) == '{';
+    }
+
+    /**
+     * Returns true if the line is a statement starting with a method invokation, possibly returned or assigned to a
+     * variable.
+     */
+    public static boolean isMethodInvokation(CharSequence line) {
+        int end = trimEnd(line, line.length());
+        if (end < 1 || line.charAt(end - 1) != ';') {
+            return false;
+        }
+        // The parameter list of the invoked method must be closed before the final semicolon.
+        int closingParenthesis = lastIndexOf(line, ')', end - 1);
+        if (closingParenthesis < 0) {
+            return false;
+        }
+        int start = skipSpaces(line, 0);
+        int wordEnd = wordEnd(line, start);
+        if (wordEnd - start == RETURN.length() && startsWith(line, start, RETURN) &&
+                wordEnd < line.length() && isSpace(line.charAt(wordEnd)) &&
+                isMethodInvokationStatement(line, skipSpaces(line, wordEnd), closingParenthesis)) {
+            return true;
+        }
+        return isMethodInvokationStatement(line, start, closingParenthesis);
+    }
+
+    /**
+     * Passes every word immediately followed by an opening parenthesis to the consumer, from left to right.
+     */
+    public static void findMethodInvokationNames(CharSequence line, Consumer<String> methodNames) {
+        int length = line.length();
+        int index = 0;
+        while (index < length) {
+            if (isWordChar(line.charAt(index))) {
+                int end = wordEnd(line, index);
+                if (end < length && line.charAt(end) == '(') {
+                    methodNames.accept(line.subSequence(index, end).toString());
+                }
+                index = end;
+            }
+            else {
+                index++;
+            }
+        }
+    }
+
+    // W( or W\s*=\s*W( starting at index, where the '(' comes before the closing parenthesis.
+    private static boolean isMethodInvokationStatement(CharSequence line, int index, int closingParenthesis) {
+        int end = wordEnd(line, index);
+        if (end == index || end >= line.length()) {
+            return false;
+        }
+        if (line.charAt(end) == '(') {
+            return end < closingParenthesis;
+        }
+        index = skipSpaces(line, end);
+        if (index >= line.length() || line.charAt(index) != '=') {
+            return false;
+        }
+        index = skipSpaces(line, index + 1);
+        end = wordEnd(line, index);
+        return end > index && end < closingParenthesis && line.charAt(end) == '(';
+    }
+
+    /*
+     * Matches the part of a declaration or definition in front of the parameter list:
+     *
+     *   \s* KEYWORDS TYPE\s+ \*{0,2}\s* (ATTR\s+)? NAME\(
+     *
+     * Words are collected left to right. The words in front of the stars (or in front of the name, if there are no
+     * stars) are keywords followed by a type, optionally followed by an attribute. The keyword groups are optional,
+     * in a fixed order and have no words in common, so they are matched greedily. The last two words are held back,
+     * since they may turn out to be the type and the attribute. Returns the name, provided its '(' comes before
+     * closingParenthesis.
+     */
+    private static String matchMethodSignature(CharSequence line, int closingParenthesis, String[][] keywords,
+                                               boolean isDefinition) {
+        int length = line.length();
+        int keywordIndex = 0;
+        boolean isKeywords = true;
+        int nrOfWords = 0;
+        int lastWordStart = -1, lastWordEnd = -1;
+        int secondLastWordStart = -1, secondLastWordEnd = -1;
+        boolean hasStars = false;
+        int nrOfWordsAfterStars = 0;
+        int wordAfterStarsStart = -1, wordAfterStarsEnd = -1;
+
+        int index = skipSpaces(line, 0);
+        while (index < length) {
+            char c = line.charAt(index);
+            if (isWordChar(c)) {
+                int end = wordEnd(line, index);
+                if (end >= length) {
+                    return null;
+                }
+                if (line.charAt(end) == '(') {
+                    return matchMethodName(line, index, end, closingParenthesis, keywords, isDefinition, keywordIndex,
+                            isKeywords, nrOfWords, lastWordStart, lastWordEnd, secondLastWordStart, secondLastWordEnd,
+                            hasStars, nrOfWordsAfterStars, wordAfterStarsStart, wordAfterStarsEnd);
+                }
+                if (!isSpace(line.charAt(end))) {
+                    return null;
+                }
+                if (hasStars) {
+                    if (++nrOfWordsAfterStars > 1) {
+                        return null;
+                    }
+                    wordAfterStarsStart = index;
+                    wordAfterStarsEnd = end;
+                }
+                else {
+                    if (nrOfWords >= 2 && isKeywords) {
+                        keywordIndex = matchKeyword(line, secondLastWordStart, secondLastWordEnd, keywords, keywordIndex);
+                        isKeywords = keywordIndex >= 0;
+                    }
+                    secondLastWordStart = lastWordStart;
+                    secondLastWordEnd = lastWordEnd;
+                    lastWordStart = index;
+                    lastWordEnd = end;
+                    nrOfWords++;
+                }
+                index = skipSpaces(line, end);
+            }
+            else if (c == '*' && !hasStars && nrOfWords > 0) {
+                int end = index;
+                while (end < length && line.charAt(end) == '*') {
+                    end++;
+                }
+                if (end - index > 2) {
+                    return null;
+                }
+                hasStars = true;
+                index = skipSpaces(line, end);
+            }
+            else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String matchMethodName(CharSequence line, int nameStart, int nameEnd, int closingParenthesis,
+                                          String[][] keywords, boolean isDefinition, int keywordIndex,
+                                          boolean isKeywords, int nrOfWords, int lastWordStart, int lastWordEnd,
+                                          int secondLastWordStart, int secondLastWordEnd, boolean hasStars,
+                                          int nrOfWordsAfterStars, int wordAfterStarsStart, int wordAfterStarsEnd) {
+        if (nrOfWords == 0 || !isKeywords) {
+            return null;
+        }
+        // KEYWORDS TYPE, where the second last word (if any) must be a keyword.
+        boolean isTypeLast = nrOfWords == 1 ||
+                matchKeyword(line, secondLastWordStart, secondLastWordEnd, keywords, keywordIndex) >= 0;
+        // KEYWORDS TYPE ATTR, only possible without stars.
+        boolean isAttributeLast = !hasStars && nrOfWords >= 2 && isAttribute(line, lastWordStart, lastWordEnd);
+
+        // Without an attribute in front of the name, the attribute slot is free for an attribute with parameters.
+        boolean isAttributeFree = hasStars ? isTypeLast && nrOfWordsAfterStars == 0 : isTypeLast;
+        if (isAttributeFree) {
+            int attributeEnd = matchAttributeParameters(line, nameStart, nameEnd, isDefinition);
+            if (attributeEnd > 0 && attributeEnd < line.length() && isSpace(line.charAt(attributeEnd))) {
+                int start = skipSpaces(line, attributeEnd);
+                int end = wordEnd(line, start);
+                if (end > start && end < closingParenthesis && line.charAt(end) == '(') {
+                    return line.subSequence(start, end).toString();
+                }
+            }
+        }
+
+        boolean isValid;
+        if (hasStars) {
+            isValid = isTypeLast && (nrOfWordsAfterStars == 0 ||
+                    isAttribute(line, wordAfterStarsStart, wordAfterStarsEnd));
+        }
+        else {
+            isValid = isTypeLast || isAttributeLast;
+        }
+        if (isValid && nameEnd < closingParenthesis) {
+            return line.subSequence(nameStart, nameEnd).toString();
+        }
+        return null;
+    }
+
+    // Returns the index after the closing parenthesis of safe_malloc(n), safe_malloc2(n, n) or printf_func(n, n),
+    // or -1 if the word and its parameters are not one of those.
+    private static int matchAttributeParameters(CharSequence line, int start, int end, boolean isDefinition) {
+        int nrOfParameters;
+        if (isWord(line, start, end, "safe_malloc")) {
+            nrOfParameters = 1;
+        }
+        else if (isWord(line, start, end, "safe_malloc2") ||
+                (isDefinition && isWord(line, start, end, "printf_func"))) {
+            nrOfParameters = 2;
+        }
+        else {
+            return -1;
+        }
+        int index = digitsEnd(line, end + 1);
+        if (index == end + 1) {
+            return -1;
+        }
+        if (nrOfParameters == 2) {
+            if (index >= line.length() || line.charAt(index) != ',') {
+                return -1;
+            }
+            int digitsStart = skipSpaces(line, index + 1);
+            index = digitsEnd(line, digitsStart);
+            if (index == digitsStart) {
+                return -1;
+            }
+        }
+        if (index >= line.length() || line.charAt(index) != ')') {
+            return -1;
+        }
+        return index + 1;
+    }
+
+    // Returns the keyword index following the keyword group matching the word, or -1 if no remaining group matches.
+    private static int matchKeyword(CharSequence line, int start, int end, String[][] keywords, int keywordIndex) {
+        for (int i = keywordIndex; i < keywords.length; i++) {
+            for (String keyword : keywords[i]) {
+                if (isWord(line, start, end, keyword)) {
+                    return i + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isAttribute(CharSequence line, int start, int end) {
+        for (String attribute : ATTRIBUTES) {
+            if (isWord(line, start, end, attribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWord(CharSequence line, int start, int end, String word) {
+        return end - start == word.length() && startsWith(line, start, word);
+    }
+
+    private static boolean startsWith(CharSequence line, int index, String prefix) {
+        if (index < 0 || index + prefix.length() > line.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(index + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int lastIndexOf(CharSequence line, char c, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(CharSequence line, int index) {
+        int length = line.length();
+        while (index < length && isSpace(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int trimEnd(CharSequence line, int end) {
+        while (end > 0 && isSpace(line.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int wordEnd(CharSequence line, int index) {
+        int length = line.length();
+        while (index < length && isWordChar(line.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int digitsEnd(CharSequence line, int index) {
+        int length = line.length();
+        while (index < length && line.charAt(index) >= '0' && line.charAt(index) <= '9') {
+            index++;
+        }
+        return index;
+    }
+
+    // Same characters as \s in a regular expression.
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    // Same characters as [a-zA-Z0-9_] in a regular expression.
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -0,0 +1,149 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable call graph of woven method implementations, in compressed sparse row form. Each method implementation
+ * has an id, 0 to size() - 1. The methods invoked by method id are the targets from offsets[id] up to, but not
+ * including, offsets[id + 1], in invokation order.
+ */
+public class CallGraph {
+
+    private CMethodImplementation[] methodImplementations;
+    private Map<CMethodImplementation, Integer> ids;
+    private int[] fileNameIds;
+    private int[] offsets;
+    private int[] targets;
+
+    private CallGraph(List<CMethodImplementation> methodImplementations,
+                      Map<CMethodImplementation, Integer> ids) {
+        this.methodImplementations = methodImplementations.toArray(new CMethodImplementation[0]);
+        this.ids = ids;
+        this.fileNameIds = new int[this.methodImplementations.length];
+        this.offsets = new int[this.methodImplementations.length + 1];
+        int nrOfTargets = 0;
+        for (int id = 0; id < this.methodImplementations.length; id++) {
+            fileNameIds[id] = this.methodImplementations[id].getSourceFile().getFileNameId();
+            offsets[id] = nrOfTargets;
+            nrOfTargets += this.methodImplementations[id].getMethodInvokations().size();
+        }
+        offsets[this.methodImplementations.length] = nrOfTargets;
+        this.targets = new int[nrOfTargets];
+        for (int id = 0; id < this.methodImplementations.length; id++) {
+            int index = offsets[id];
+            for (CMethodImplementation invokedMethod : this.methodImplementations[id].getMethodInvokations()) {
+                Integer target = ids.get(invokedMethod);
+                if (Objects.isNull(target)) {
+                    throw new IllegalStateException("Method '" + invokedMethod.getName() + "' invoked from '" +
+                            this.methodImplementations[id].getName() + "' is not in the call graph.");
+                }
+                targets[index++] = target;
+            }
+        }
+    }
+
+    /**
+     * Returns the call graph of all method implementations in the source files, in source file order.
+     */
+    public static CallGraph of(Collection<CSourceFile> cSourceFiles) {
+        List<CMethodImplementation> methodImplementations = new ArrayList<>();
+        Map<CMethodImplementation, Integer> ids = new IdentityHashMap<>();
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            for (CMethodImplementation methodImplementation : cSourceFile.getMethodDefinitions()) {
+                if (!ids.containsKey(methodImplementation)) {
+                    ids.put(methodImplementation, methodImplementations.size());
+                    methodImplementations.add(methodImplementation);
+                }
+            }
+        }
+        return new CallGraph(methodImplementations, ids);
+    }
+
+    /**
+     * Returns the call graph of the start method and the method implementations it reaches. The start method has id 0.
+     */
+    public static CallGraph reachableFrom(CMethodImplementation startMethod) {
+        List<CMethodImplementation> methodImplementations = new ArrayList<>();
+        Map<CMethodImplementation, Integer> ids = new IdentityHashMap<>();
+        Deque<CMethodImplementation> queue = new ArrayDeque<>();
+        ids.put(startMethod, 0);
+        methodImplementations.add(startMethod);
+        queue.add(startMethod);
+        while (!queue.isEmpty()) {
+            for (CMethodImplementation invokedMethod : queue.remove().getMethodInvokations()) {
+                if (!ids.containsKey(invokedMethod)) {
+                    ids.put(invokedMethod, methodImplementations.size());
+                    methodImplementations.add(invokedMethod);
+                    queue.add(invokedMethod);
+                }
+            }
+        }
+        return new CallGraph(methodImplementations, ids);
+    }
+
+    public int size() {
+        return methodImplementations.length;
+    }
+
+    public int getNrOfEdges() {
+        return targets.length;
+    }
+
+    public boolean contains(CMethodImplementation methodImplementation) {
+        return ids.containsKey(methodImplementation);
+    }
+
+    /**
+     * Returns the id of the method implementation, or -1 if it is not in the call graph.
+     */
+    public int id(CMethodImplementation methodImplementation) {
+        Integer id = ids.get(methodImplementation);
+        return Objects.isNull(id) ? -1 : id;
+    }
+
+    public CMethodImplementation getMethodImplementation(int id) {
+        return methodImplementations[id];
+    }
+
+    public String getName(int id) {
+        return methodImplementations[id].getName();
+    }
+
+    public String getFileName(int id) {
+        return methodImplementations[id].getSourceFile().getFileName();
+    }
+
+    public int getFileNameId(int id) {
+        return fileNameIds[id];
+    }
+
+    /**
+     * Index in targets of the first method invoked by the method.
+     */
+    public int getFirstTarget(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * Index in targets after the last method invoked by the method.
+     */
+    public int getEndTarget(int id) {
+        return offsets[id + 1];
+    }
+
+    public int getTarget(int index) {
+        return targets[index];
+    }
+
+    public int[] getTargets(int id) {
+        return Arrays.copyOfRange(targets, offsets[id], offsets[id + 1]);
+    }
+}
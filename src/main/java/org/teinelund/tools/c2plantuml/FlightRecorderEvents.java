@@ -0,0 +1,72 @@
+package org.teinelund.tools.c2plantuml;
+
+import jdk.jfr.FlightRecorder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Begins and ends the Java Flight Recorder events. Loading the first event class starts the internals of Flight
+ * Recorder, which takes a few hundred milliseconds, whether a recording is running or not. So the begin methods only
+ * make an event once Flight Recorder is initialized, which it is when a recording has been started, at JVM start or
+ * later, and return null otherwise. The end methods do nothing with a null event. Whether an initialized Flight
+ * Recorder records an event is left to the event, through shouldCommit.
+ */
+public class FlightRecorderEvents {
+
+    public static boolean isInitialized() {
+        return FlightRecorder.isInitialized();
+    }
+
+    static ParsePathEvent beginParsePath() {
+        return isInitialized() ? new ParsePathEvent() : null;
+    }
+
+    static void endParsePath(ParsePathEvent event, Path path, long bytes, CSourceFile cSourceFile, boolean cached) {
+        if (!Objects.isNull(event)) {
+            event.end(path, bytes, cSourceFile, cached);
+        }
+    }
+
+    /**
+     * Ends the event of a file parsed from the path. The size of the file is only looked up if the event is recorded.
+     */
+    static void endParsePath(ParsePathEvent event, Path path, CSourceFile cSourceFile) throws IOException {
+        if (!Objects.isNull(event)) {
+            event.end(path, cSourceFile);
+        }
+    }
+
+    static LineScanEvent beginLineScan() {
+        return isInitialized() ? new LineScanEvent() : null;
+    }
+
+    static void endLineScan(LineScanEvent event, String scan, CharSequence line, CSourceFile cSourceFile,
+                            boolean match) {
+        if (!Objects.isNull(event)) {
+            event.end(scan, line, cSourceFile, match);
+        }
+    }
+
+    static WeavePassEvent beginWeavePass() {
+        return isInitialized() ? new WeavePassEvent() : null;
+    }
+
+    static void endWeavePass(WeavePassEvent event, String pass, int files) {
+        if (!Objects.isNull(event)) {
+            event.end(pass, files);
+        }
+    }
+
+    static RenderEvent beginRender() {
+        return isInitialized() ? new RenderEvent() : null;
+    }
+
+    static void endRender(RenderEvent event, String startMethod, int invokations, long outputBytes,
+                          long outputLines) {
+        if (!Objects.isNull(event)) {
+            event.end(startMethod, invokations, outputBytes, outputLines);
+        }
+    }
+}
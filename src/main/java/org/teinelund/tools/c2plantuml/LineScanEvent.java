@@ -0,0 +1,50 @@
+package org.teinelund.tools.c2plantuml;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for scanning a line, or a few joined lines, for an include statement, a method
+ * declaration, a method definition or method invokations. Only scans taking longer than the threshold are recorded,
+ * to find the lines that make the scanner slow.
+ */
+@Name("org.teinelund.tools.c2plantuml.LineScan")
+@Label("Line Scan")
+@Category("C2plantuml")
+@Description("Scan of a source line that took longer than the threshold")
+@Threshold("1 ms")
+public class LineScanEvent extends Event {
+
+    @Label("Scan")
+    @Description("What the line was scanned for: include, methodDeclaration, methodDefinition or methodInvokation")
+    String scan;
+
+    @Label("File Name")
+    String fileName;
+
+    @Label("Line")
+    String line;
+
+    @Label("Match")
+    boolean match;
+
+    // The event begins when it is made.
+    LineScanEvent() {
+        begin();
+    }
+
+    void end(String scan, CharSequence line, CSourceFile cSourceFile, boolean match) {
+        end();
+        if (shouldCommit()) {
+            this.scan = scan;
+            this.fileName = cSourceFile.getFileName();
+            this.line = line.toString();
+            this.match = match;
+            commit();
+        }
+    }
+}
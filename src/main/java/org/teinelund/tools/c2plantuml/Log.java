@@ -0,0 +1,142 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes lines to an output stream from a background thread, through a buffer, so the threads printing them never
+ * wait for the console. Used for verbose output, which is a few lines per parsed file and rendered invokation. The
+ * background thread is started by the first line printed. Lines are written in the order they are printed; flush
+ * waits until the lines printed before it are written. Pending lines are also written when the JVM exits, e.g. by
+ * System.exit. At most QUEUE_CAPACITY lines wait to be written; when the console falls behind, println waits too,
+ * rather than holding an unbounded number of lines. Like System.out, write errors are ignored.
+ */
+public class Log {
+
+    private static final Log GLOBAL = new Log(System.out);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int QUEUE_CAPACITY = 8 * 1024;
+    private static final long FLUSH_TIMEOUT_SECONDS = 10;
+
+    private PrintStream out;
+    // Lines, and latches to count down when the lines before them are written.
+    private BlockingQueue<Object> lines;
+    private volatile Thread writerThread = null;
+
+    /**
+     * Returns the log writing to standard output.
+     */
+    public static Log global() {
+        return GLOBAL;
+    }
+
+    Log(PrintStream out) {
+        this(out, QUEUE_CAPACITY);
+    }
+
+    Log(PrintStream out, int queueCapacity) {
+        this.out = out;
+        this.lines = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public void println(String line) {
+        if (Objects.isNull(writerThread)) {
+            startWriterThread();
+        }
+        try {
+            lines.put(line);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until all lines printed before are written and flushed, but at most FLUSH_TIMEOUT_SECONDS, so a writer
+     * thread that is stuck on the console can not hang the caller, or the JVM exit. Returns at once if no line has
+     * been printed.
+     */
+    public void flush() {
+        if (Objects.isNull(writerThread)) {
+            return;
+        }
+        CountDownLatch written = new CountDownLatch(1);
+        try {
+            if (lines.offer(written, FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                written.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void startWriterThread() {
+        if (!Objects.isNull(writerThread)) {
+            return;
+        }
+        Thread thread = new Thread(this::writeLines, "c2plantuml-log");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "c2plantuml-log-flush"));
+        writerThread = thread;
+    }
+
+    private void writeLines() {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()), BUFFER_SIZE);
+        List<Object> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(lines.take());
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            lines.drainTo(batch);
+            for (Object line : batch) {
+                if (line instanceof CountDownLatch) {
+                    flush(writer);
+                    ((CountDownLatch) line).countDown();
+                }
+                else {
+                    write(writer, (String) line);
+                }
+            }
+            batch.clear();
+            // Nothing more to write for now, so show what is written.
+            if (lines.isEmpty()) {
+                flush(writer);
+            }
+        }
+    }
+
+    // A runtime exception from the output stream is ignored too, since it would stop the writer thread.
+    private static void write(BufferedWriter writer, String line) {
+        try {
+            writer.write(line);
+            writer.newLine();
+        }
+        catch (IOException | RuntimeException e) {
+            // Ignored, as by System.out.
+        }
+    }
+
+    private static void flush(BufferedWriter writer) {
+        try {
+            writer.flush();
+        }
+        catch (IOException | RuntimeException e) {
+            // Ignored, as by System.out.
+        }
+    }
+}
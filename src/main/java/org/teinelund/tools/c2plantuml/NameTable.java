@@ -0,0 +1,75 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives each distinct file name and method name an int id, starting at 0, and keeps one String instance per name.
+ * Names are only added, until the table is cleared. Safe to use from several threads, as the parser threads do.
+ */
+public class NameTable {
+
+    private static final NameTable GLOBAL = new NameTable();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private int nrOfNames = 0;
+
+    /**
+     * Returns the name table shared by the whole model.
+     */
+    public static NameTable global() {
+        return GLOBAL;
+    }
+
+    public int id(String name) {
+        Integer id = ids.get(name);
+        if (!Objects.isNull(id)) {
+            return id;
+        }
+        return add(name);
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the one String instance of the name.
+     */
+    public String intern(String name) {
+        return name(id(name));
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Removes all names, so the ids start at 0 again. Application.execute clears the global table at the start of
+     * each run, and tests and benchmarks before each model they build. Must not be called while a model made with
+     * the table is in use, since its ids would then refer to other names.
+     */
+    public synchronized void clear() {
+        ids.clear();
+        names = new String[INITIAL_CAPACITY];
+        nrOfNames = 0;
+    }
+
+    private synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (!Objects.isNull(id)) {
+            return id;
+        }
+        if (nrOfNames == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[nrOfNames] = name;
+        // The name is stored before the id is published, so whoever gets the id also sees the name.
+        ids.put(name, nrOfNames);
+        return nrOfNames++;
+    }
+}
@@ -0,0 +1,66 @@
+package org.teinelund.tools.c2plantuml;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Java Flight Recorder event for reading and parsing one source file. Records nothing unless a flight recording is
+ * running, e.g. started with -XX:StartFlightRecording. A file taken from the cache gives an event too, which covers
+ * the cache lookup and has no bytes, whichever way the files are read.
+ */
+@Name("org.teinelund.tools.c2plantuml.ParsePath")
+@Label("Parse Path")
+@Category("C2plantuml")
+@Description("Reading and parsing of a header file or source file")
+public class ParsePathEvent extends Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Lines")
+    int lines;
+
+    @Label("Cached")
+    @Description("The parsed file was taken from the cache")
+    boolean cached;
+
+    // The event begins when it is made.
+    ParsePathEvent() {
+        begin();
+    }
+
+    void end(Path path, long bytes, CSourceFile cSourceFile, boolean cached) {
+        end();
+        if (shouldCommit()) {
+            this.path = path.toString();
+            this.bytes = bytes;
+            this.lines = cSourceFile.getNrOfLines();
+            this.cached = cached;
+            commit();
+        }
+    }
+
+    // The size of the file is only looked up if the event is committed.
+    void end(Path path, CSourceFile cSourceFile) throws IOException {
+        end();
+        if (shouldCommit()) {
+            this.path = path.toString();
+            this.bytes = Files.size(path);
+            this.lines = cSourceFile.getNrOfLines();
+            this.cached = false;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Renders the UML sequence diagram of a start method, following the invokations in a call graph. All state of a
+ * render is kept in the renderer, and the call graph is immutable, so several renderers may render diagrams from the
+ * same call graph concurrently. A renderer renders one diagram.
+ */
+public class PlantUmlRenderer {
+
+    private static final String INVOKER = "Invoker";
+
+    private CallGraph callGraph;
+    private Consumer<String> verboseOutput;
+    private boolean collapseRepeatedMethods = false;
+    private int maxDepth = 0;
+    private int maxNodes = 0;
+    private long maxOutputBytes = 0;
+    private int nrOfInvokations = 0;
+    private CountingWriter countingWriter;
+    // Indexed by method id in the call graph.
+    private int[] nrOfActiveInvokations;
+    private BitSet expandedMethods = new BitSet();
+
+    /**
+     * @param verboseOutput receives each invokation and return as it is rendered, or null.
+     */
+    public PlantUmlRenderer(CallGraph callGraph, Consumer<String> verboseOutput) {
+        this.callGraph = callGraph;
+        this.verboseOutput = verboseOutput;
+        this.nrOfActiveInvokations = new int[callGraph.size()];
+    }
+
+    /**
+     * If true, the methods invoked by a method are only shown the first time the method is expanded. A method is not
+     * expanded where it is already active (a cycle), where it is the second invokation in a row within the same source
+     * file, or where a limit is reached before its first invokation is shown. So its first expansion may come after
+     * invokations of it that are not expanded. Every invokation of the method after its first expansion has started,
+     * those not expanded for the reasons above included, shows a reference to it instead.
+     */
+    public void setCollapseRepeatedMethods(boolean collapseRepeatedMethods) {
+        this.collapseRepeatedMethods = collapseRepeatedMethods;
+    }
+
+    /**
+     * Maximum depth of the call chain from the start method, which has depth 1. 0 means no limit.
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Maximum number of method invokations in the diagram. 0 means no limit.
+     */
+    public void setMaxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Number of bytes (UTF-8) of the diagram after which no more method invokations are added. The returns of the
+     * invokations already added, and the notes about the truncation, are still written, so the diagram ends up
+     * somewhat larger. 0 means no limit.
+     */
+    public void setMaxOutputBytes(long maxOutputBytes) {
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * Number of lines in the rendered diagram.
+     */
+    public long getNrOfOutputLines() {
+        return Objects.isNull(countingWriter) ? 0 : countingWriter.getNrOfLines();
+    }
+
+    public String render(CMethodImplementation startMethod) {
+        StringWriter plantUmlContent = new StringWriter();
+        try {
+            render(startMethod, plantUmlContent);
+        }
+        catch (IOException e) {
+            // A StringWriter does not throw.
+            throw new UncheckedIOException(e);
+        }
+        return plantUmlContent.toString();
+    }
+
+    /**
+     * Writes the diagram as it is rendered, so it is never held in memory as a whole. The writer is not flushed or
+     * closed.
+     */
+    public void render(CMethodImplementation startMethod, Writer writer) throws IOException {
+        int startMethodId = callGraph.id(startMethod);
+        if (startMethodId < 0) {
+            throw new IllegalStateException("Method '" + startMethod.getName() + "' is not in the call graph.");
+        }
+        RenderEvent renderEvent = FlightRecorderEvents.beginRender();
+        CountingWriter plantUmlContent = new CountingWriter(writer);
+        this.countingWriter = plantUmlContent;
+        plantUmlContent.append("@startuml"); plantUmlContent.append(System.lineSeparator());
+        plantUmlContent.append("autoactivate on"); plantUmlContent.append(System.lineSeparator());
+        plantUmlContent.append("actor Invoker"); plantUmlContent.append(System.lineSeparator());
+        renderMethod(plantUmlContent, INVOKER, NameTable.global().id(INVOKER), startMethodId, 0);
+        plantUmlContent.append("@enduml"); plantUmlContent.append(System.lineSeparator());
+        FlightRecorderEvents.endRender(renderEvent, startMethod.getName(), nrOfInvokations,
+                plantUmlContent.getNrOfBytes(), plantUmlContent.getNrOfLines());
+    }
+
+    /**
+     * Appends the invokation of the method, and recursively of the methods it invokes, followed by the return. The
+     * call chain is followed with an explicit stack instead of recursion, so its depth is only limited by the heap.
+     * When a limit is reached, the methods not yet invoked by a method are replaced by a note.
+     */
+    private void renderMethod(Writer plantUmlContent, String source, int sourceId, int methodId,
+                              int nrOfInvokationsInSameSourcefile) throws IOException {
+        Deque<RenderFrame> stack = new ArrayDeque<>();
+        stack.push(enterMethod(plantUmlContent, source, sourceId, methodId, nrOfInvokationsInSameSourcefile));
+        while (!stack.isEmpty()) {
+            RenderFrame frame = stack.peek();
+            if (frame.expand && frame.nextTarget < frame.endTarget) {
+                String reachedLimit = reachedLimit(stack.size());
+                if (!Objects.isNull(reachedLimit)) {
+                    plantUmlContent.append("note over ").append(frame.fileName).append(" : ")
+                            .append(String.valueOf(frame.endTarget - frame.nextTarget))
+                            .append(" invokations not shown, ").append(reachedLimit).append(" reached")
+                            .append(System.lineSeparator());
+                    frame.expand = false;
+                    continue;
+                }
+                // The method is only counted as expanded once it shows an invokation.
+                if (collapseRepeatedMethods && frame.nextTarget == callGraph.getFirstTarget(frame.methodId)) {
+                    expandedMethods.set(frame.methodId);
+                }
+                int invokedMethodId = callGraph.getTarget(frame.nextTarget++);
+                stack.push(enterMethod(plantUmlContent, frame.fileName, frame.fileNameId, invokedMethodId,
+                        frame.nrOfInvokationsInSameSourcefile));
+            }
+            else {
+                stack.pop();
+                exitMethod(plantUmlContent, frame);
+            }
+        }
+    }
+
+    /**
+     * Returns the name of the limit that stops more methods from being invoked at the depth, or null.
+     */
+    private String reachedLimit(int depth) {
+        if (maxDepth > 0 && depth >= maxDepth) {
+            return "max depth";
+        }
+        if (maxNodes > 0 && nrOfInvokations >= maxNodes) {
+            return "max nodes";
+        }
+        if (maxOutputBytes > 0 && countingWriter.getNrOfBytes() >= maxOutputBytes) {
+            return "max output bytes";
+        }
+        return null;
+    }
+
+    private RenderFrame enterMethod(Writer plantUmlContent, String source, int sourceId, int methodId,
+                                    int nrOfInvokationsInSameSourcefile) throws IOException {
+        String fileName = callGraph.getFileName(methodId);
+        int fileNameId = callGraph.getFileNameId(methodId);
+        String methodName = callGraph.getName(methodId);
+        nrOfInvokations++;
+        if (!Objects.isNull(verboseOutput)) {
+            verboseOutput.accept(source + " -> " + fileName + " ++ : " + methodName);
+        }
+        // A method that is already active is invoked again (a cycle). It is shown, but not expanded again.
+        int nrOfActiveInvokations = ++this.nrOfActiveInvokations[methodId];
+        if (sourceId == fileNameId) {
+            nrOfInvokationsInSameSourcefile++;
+        }
+        plantUmlContent.append(source).append(" -> ").append(fileName).append(" ++ : ").append(methodName)
+                .append(System.lineSeparator());
+        RenderFrame frame = new RenderFrame();
+        frame.source = source;
+        frame.fileName = fileName;
+        frame.fileNameId = fileNameId;
+        frame.methodId = methodId;
+        frame.nextTarget = callGraph.getFirstTarget(methodId);
+        frame.endTarget = callGraph.getEndTarget(methodId);
+        frame.nrOfInvokationsInSameSourcefile = nrOfInvokationsInSameSourcefile;
+        frame.expand = nrOfActiveInvokations < 2 && nrOfInvokationsInSameSourcefile < 2;
+        if (collapseRepeatedMethods && frame.nextTarget < frame.endTarget && expandedMethods.get(methodId)) {
+            plantUmlContent.append("ref over ").append(fileName).append(" : ").append(methodName)
+                    .append(System.lineSeparator());
+            frame.expand = false;
+        }
+        return frame;
+    }
+
+    private void exitMethod(Writer plantUmlContent, RenderFrame frame) throws IOException {
+        plantUmlContent.append(frame.fileName).append(" --> ").append(frame.source).append(System.lineSeparator());
+        this.nrOfActiveInvokations[frame.methodId]--;
+        if (!Objects.isNull(verboseOutput)) {
+            verboseOutput.accept(frame.fileName + " --> " + frame.source);
+        }
+    }
+
+    /**
+     * Counts the number of bytes the characters written take in UTF-8.
+     */
+    private static class CountingWriter extends Writer {
+        private Writer writer;
+        private long nrOfBytes = 0;
+        private long nrOfLines = 0;
+
+        CountingWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        long getNrOfBytes() {
+            return nrOfBytes;
+        }
+
+        long getNrOfLines() {
+            return nrOfLines;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                count(chars[i]);
+            }
+            writer.write(chars, offset, length);
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            for (int i = offset; i < offset + length; i++) {
+                count(string.charAt(i));
+            }
+            writer.write(string, offset, length);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            count((char) c);
+            writer.write(c);
+        }
+
+        private void count(char c) {
+            if (c < 0x80) {
+                nrOfBytes++;
+                if (c == '\n') {
+                    nrOfLines++;
+                }
+            }
+            else if (c < 0x800 || Character.isSurrogate(c)) {
+                // A surrogate pair is four bytes, two for each half.
+                nrOfBytes += 2;
+            }
+            else {
+                nrOfBytes += 3;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * A method invokation on the render stack.
+     */
+    private static class RenderFrame {
+        String source;
+        String fileName;
+        int fileNameId;
+        int methodId;
+        // Index in the call graph targets of the next method to invoke, and after the last.
+        int nextTarget;
+        int endTarget;
+        int nrOfInvokationsInSameSourcefile;
+        boolean expand;
+    }
+}
@@ -0,0 +1,47 @@
+package org.teinelund.tools.c2plantuml;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for rendering the sequence diagram of a start method.
+ */
+@Name("org.teinelund.tools.c2plantuml.Render")
+@Label("Render")
+@Category("C2plantuml")
+@Description("Traversal of the call graph from a start method, writing the sequence diagram")
+public class RenderEvent extends Event {
+
+    @Label("Start Method")
+    String startMethod;
+
+    @Label("Invokations")
+    int invokations;
+
+    @Label("Output Bytes")
+    @DataAmount
+    long outputBytes;
+
+    @Label("Output Lines")
+    long outputLines;
+
+    // The event begins when it is made.
+    RenderEvent() {
+        begin();
+    }
+
+    void end(String startMethod, int invokations, long outputBytes, long outputLines) {
+        end();
+        if (shouldCommit()) {
+            this.startMethod = startMethod;
+            this.invokations = invokations;
+            this.outputBytes = outputBytes;
+            this.outputLines = outputLines;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wall time, CPU time and allocated bytes of each phase of a run, and counters of what the run processed. The CPU
+ * time and allocated bytes of a phase are those of the thread running the phase, plus those of the work handed to
+ * worker threads through measureWork. When disabled, nothing is measured or counted.
+ */
+public class RunStatistics {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private boolean enabled;
+    private List<Phase> phases = new ArrayList<>();
+    private volatile Phase currentPhase = null;
+    private LongAdder nrOfLines = new LongAdder();
+    private LongAdder nrOfBytes = new LongAdder();
+    private LongAdder nrOfUnresolvedCalls = new LongAdder();
+    private LongAdder nrOfOutputLines = new LongAdder();
+    private long nrOfFiles = 0;
+    private long nrOfFunctions = 0;
+    private long nrOfEdges = 0;
+
+    /**
+     * Work done by a worker thread.
+     */
+    public interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    public RunStatistics(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts a phase on the current thread. The phase lasts until endPhase is called on the same thread.
+     */
+    public void startPhase(String name) {
+        if (!enabled) {
+            return;
+        }
+        Phase phase = new Phase(name, Thread.currentThread());
+        phase.wallTimeNanos = System.nanoTime();
+        phase.cpuTimeNanos = currentThreadCpuTime();
+        phase.allocatedBytes = currentThreadAllocatedBytes();
+        currentPhase = phase;
+    }
+
+    public void endPhase() {
+        Phase phase = currentPhase;
+        if (!enabled || Objects.isNull(phase)) {
+            return;
+        }
+        // Until now the fields held the values at the start of the phase.
+        phase.wallTimeNanos = System.nanoTime() - phase.wallTimeNanos;
+        phase.cpuTimeNanos = difference(phase.cpuTimeNanos, currentThreadCpuTime());
+        phase.allocatedBytes = difference(phase.allocatedBytes, currentThreadAllocatedBytes());
+        phases.add(phase);
+        currentPhase = null;
+    }
+
+    /**
+     * Runs the work, and adds the CPU time and allocated bytes of the current thread while doing it to the current
+     * phase, unless the current thread is the one running the phase, which is measured already.
+     */
+    public <T, E extends Exception> T measureWork(Work<T, E> work) throws E {
+        Phase phase = currentPhase;
+        if (!enabled || Objects.isNull(phase) || phase.thread == Thread.currentThread()) {
+            return work.run();
+        }
+        long cpuTimeNanos = currentThreadCpuTime();
+        long allocatedBytes = currentThreadAllocatedBytes();
+        try {
+            return work.run();
+        }
+        finally {
+            phase.workerCpuTimeNanos.add(Math.max(0, difference(cpuTimeNanos, currentThreadCpuTime())));
+            phase.workerAllocatedBytes.add(Math.max(0, difference(allocatedBytes, currentThreadAllocatedBytes())));
+        }
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public void addLines(long nrOfLines) {
+        if (enabled) {
+            this.nrOfLines.add(nrOfLines);
+        }
+    }
+
+    public void addBytes(long nrOfBytes) {
+        if (enabled) {
+            this.nrOfBytes.add(nrOfBytes);
+        }
+    }
+
+    public void addUnresolvedCalls(long nrOfUnresolvedCalls) {
+        if (enabled) {
+            this.nrOfUnresolvedCalls.add(nrOfUnresolvedCalls);
+        }
+    }
+
+    public void addOutputLines(long nrOfOutputLines) {
+        if (enabled) {
+            this.nrOfOutputLines.add(nrOfOutputLines);
+        }
+    }
+
+    public void setNrOfFiles(long nrOfFiles) {
+        this.nrOfFiles = nrOfFiles;
+    }
+
+    public void setNrOfFunctions(long nrOfFunctions) {
+        this.nrOfFunctions = nrOfFunctions;
+    }
+
+    public void setNrOfEdges(long nrOfEdges) {
+        this.nrOfEdges = nrOfEdges;
+    }
+
+    public long getNrOfLines() {
+        return nrOfLines.sum();
+    }
+
+    public long getNrOfBytes() {
+        return nrOfBytes.sum();
+    }
+
+    public long getNrOfUnresolvedCalls() {
+        return nrOfUnresolvedCalls.sum();
+    }
+
+    public long getNrOfOutputLines() {
+        return nrOfOutputLines.sum();
+    }
+
+    public long getNrOfFiles() {
+        return nrOfFiles;
+    }
+
+    public long getNrOfFunctions() {
+        return nrOfFunctions;
+    }
+
+    public long getNrOfEdges() {
+        return nrOfEdges;
+    }
+
+    /**
+     * Returns the statistics as a table, one line per phase followed by the counters. CPU time and allocated bytes
+     * are -1 if the JVM can not measure them.
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+        text.append(String.format(Locale.ROOT, "%-28s %12s %12s %16s", "Phase", "Wall (ms)", "CPU (ms)",
+                "Allocated (B)")).append(lineSeparator);
+        long wallTimeNanos = 0;
+        long cpuTimeNanos = 0;
+        long allocatedBytes = 0;
+        for (Phase phase : phases) {
+            appendPhase(text, phase.getName(), phase.getWallTimeNanos(), phase.getCpuTimeNanos(),
+                    phase.getAllocatedBytes());
+            wallTimeNanos += phase.getWallTimeNanos();
+            cpuTimeNanos = cpuTimeNanos < 0 || phase.getCpuTimeNanos() < 0 ? -1 :
+                    cpuTimeNanos + phase.getCpuTimeNanos();
+            allocatedBytes = allocatedBytes < 0 || phase.getAllocatedBytes() < 0 ? -1 :
+                    allocatedBytes + phase.getAllocatedBytes();
+        }
+        appendPhase(text, "Total", wallTimeNanos, cpuTimeNanos, allocatedBytes);
+        text.append("Files: ").append(getNrOfFiles()).append(lineSeparator);
+        text.append("Lines: ").append(getNrOfLines()).append(lineSeparator);
+        text.append("Bytes: ").append(getNrOfBytes()).append(lineSeparator);
+        text.append("Functions: ").append(getNrOfFunctions()).append(lineSeparator);
+        text.append("Edges: ").append(getNrOfEdges()).append(lineSeparator);
+        text.append("Unresolved calls: ").append(getNrOfUnresolvedCalls()).append(lineSeparator);
+        text.append("Output lines: ").append(getNrOfOutputLines()).append(lineSeparator);
+        return text.toString();
+    }
+
+    /**
+     * Returns the statistics as a JSON object, with times in nanoseconds.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder();
+        String lineSeparator = System.lineSeparator();
+        json.append("{").append(lineSeparator);
+        json.append("  \"phases\": [");
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            json.append(i == 0 ? "" : ",").append(lineSeparator);
+            json.append("    {\"name\": \"").append(phase.getName())
+                    .append("\", \"wallTimeNanos\": ").append(phase.getWallTimeNanos())
+                    .append(", \"cpuTimeNanos\": ").append(phase.getCpuTimeNanos())
+                    .append(", \"allocatedBytes\": ").append(phase.getAllocatedBytes()).append("}");
+        }
+        json.append(lineSeparator).append("  ],").append(lineSeparator);
+        json.append("  \"files\": ").append(getNrOfFiles()).append(",").append(lineSeparator);
+        json.append("  \"lines\": ").append(getNrOfLines()).append(",").append(lineSeparator);
+        json.append("  \"bytes\": ").append(getNrOfBytes()).append(",").append(lineSeparator);
+        json.append("  \"functions\": ").append(getNrOfFunctions()).append(",").append(lineSeparator);
+        json.append("  \"edges\": ").append(getNrOfEdges()).append(",").append(lineSeparator);
+        json.append("  \"unresolvedCalls\": ").append(getNrOfUnresolvedCalls()).append(",").append(lineSeparator);
+        json.append("  \"outputLines\": ").append(getNrOfOutputLines()).append(lineSeparator);
+        json.append("}").append(lineSeparator);
+        return json.toString();
+    }
+
+    private static void appendPhase(StringBuilder text, String name, long wallTimeNanos, long cpuTimeNanos,
+                                    long allocatedBytes) {
+        text.append(String.format(Locale.ROOT, "%-28s %12.1f %12.1f %16d", name, wallTimeNanos / 1e6,
+                cpuTimeNanos < 0 ? -1.0 : cpuTimeNanos / 1e6, allocatedBytes)).append(System.lineSeparator());
+    }
+
+    // Returns -1 if a value is -1, meaning it can not be measured.
+    private static long difference(long startValue, long endValue) {
+        return startValue < 0 || endValue < 0 ? -1 : endValue - startValue;
+    }
+
+    private static long currentThreadCpuTime() {
+        return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+            if (threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return threadMXBean.getCurrentThreadAllocatedBytes();
+            }
+        }
+        return -1;
+    }
+
+    public static class Phase {
+        private String name;
+        private Thread thread;
+        private long wallTimeNanos;
+        private long cpuTimeNanos;
+        private long allocatedBytes;
+        private LongAdder workerCpuTimeNanos = new LongAdder();
+        private LongAdder workerAllocatedBytes = new LongAdder();
+
+        Phase(String name, Thread thread) {
+            this.name = name;
+            this.thread = thread;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getWallTimeNanos() {
+            return wallTimeNanos;
+        }
+
+        /**
+         * CPU time of the thread running the phase and of the worker threads, or -1 if it can not be measured.
+         */
+        public long getCpuTimeNanos() {
+            return cpuTimeNanos < 0 ? -1 : cpuTimeNanos + workerCpuTimeNanos.sum();
+        }
+
+        /**
+         * Bytes allocated by the thread running the phase and by the worker threads, or -1 if they can not be
+         * measured.
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes < 0 ? -1 : allocatedBytes + workerAllocatedBytes.sum();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.util.regex.Pattern;
+
+/**
+ * A method to start a UML sequence diagram from, and optionally the source file where it reside.
+ */
+public class StartMethod {
+
+    private static final Pattern METHOD_NAME_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private String methodName;
+    private String sourceFileName;
+
+    public StartMethod(String methodName, String sourceFileName) {
+        this.methodName = methodName;
+        this.sourceFileName = sourceFileName;
+    }
+
+    /**
+     * Returns true if the name is a C identifier. Only such names are accepted as start methods, since the method name
+     * is part of the diagram file name, and a name like '../main' would put the diagram outside the output directory.
+     */
+    public static boolean isMethodName(String name) {
+        return METHOD_NAME_PATTERN.matcher(name).matches();
+    }
+
+    /**
+     * Returns true if the name is a file name without a directory, which is what the source file name of a start
+     * method is compared to. The source file name is also part of the diagram file name.
+     */
+    public static boolean isSourceFileName(String name) {
+        return !name.isBlank() && name.indexOf('/') < 0 && name.indexOf('\\') < 0 && !name.equals("..");
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+
+    /**
+     * Returns '&lt;method&gt;.puml', or '&lt;source&gt;.&lt;method&gt;.puml' if a source file name is given, where
+     * source is the source file name without extension.
+     */
+    public String getDiagramFileName() {
+        if (sourceFileName.isBlank()) {
+            return methodName + ".puml";
+        }
+        int index = sourceFileName.lastIndexOf('.');
+        String sourceName = index > 0 ? sourceFileName.substring(0, index) : sourceFileName;
+        return sourceName + "." + methodName + ".puml";
+    }
+}
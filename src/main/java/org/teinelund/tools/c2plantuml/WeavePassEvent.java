@@ -0,0 +1,38 @@
+package org.teinelund.tools.c2plantuml;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one pass of weaveCodeTogether over the parsed files.
+ */
+@Name("org.teinelund.tools.c2plantuml.WeavePass")
+@Label("Weave Pass")
+@Category("C2plantuml")
+@Description("One pass of weaving the parsed files together")
+public class WeavePassEvent extends Event {
+
+    @Label("Pass")
+    String pass;
+
+    @Label("Files")
+    @Description("Number of files the pass went through")
+    int files;
+
+    // The event begins when it is made.
+    WeavePassEvent() {
+        begin();
+    }
+
+    void end(String pass, int files) {
+        end();
+        if (shouldCommit()) {
+            this.pass = pass;
+            this.files = files;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.teinelund.tools.c2plantuml;
+
+import com.beust.jcommander.JCommander;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/**
+ * Runs fetchCFiles through savePlantUmlContent on code bases written by CCodebaseGenerator.
+ */
+public class ApplicationScalingTest {
+
+    @BeforeEach
+    void init() {
+        NameTable.global().clear();
+    }
+
+    @Test
+    void sequentialRunOnGeneratedCodebase(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        CCodebaseGenerator generator = createGenerator(200, 10);
+        generator.generate(tempDir.resolve("input"));
+        Application application = new Application();
+        JCommander.newBuilder().addObject(application).build().parse(
+                "-i", tempDir.resolve("input").toString(), "-o", tempDir.resolve("main.puml").toString(),
+                "--collapse-repeated");
+        application.verifyParameters();
+        // Test
+        runFromFetchToSave(application);
+        // Verify
+        assertThat(application.paths.size()).isEqualTo(2 * generator.getNrOfFiles() + 1);
+        assertThat(application.cHeaderFiles.size()).isEqualTo(generator.getNrOfFiles());
+        assertThat(application.callGraph.size()).isEqualTo(generator.getNrOfMethods());
+        assertThat(application.callGraph.getNrOfEdges()).isEqualTo(generator.getNrOfInvokations());
+        assertThat(nrOfMethodDeclarations(application)).isEqualTo(generator.getNrOfMethods() - 1);
+        assertThat(application.getStartingMethod().getName()).isEqualTo("main");
+        String plantUmlContent = Files.readString(tempDir.resolve("main.puml"), StandardCharsets.UTF_8);
+        assertThat(plantUmlContent.startsWith("@startuml")).isTrue();
+        assertThat(plantUmlContent).isEqualTo(application.getPlantUmlContent());
+    }
+
+    @Test
+    void parallelRunsOnGeneratedCodebaseGiveSameResultAsSequentialRun(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        CCodebaseGenerator generator = createGenerator(300, 10);
+        generator.generate(tempDir.resolve("input"));
+        String input = tempDir.resolve("input").toString();
+        Application sequentialApplication = new Application();
+        JCommander.newBuilder().addObject(sequentialApplication).build().parse(
+                "-i", input, "-o", tempDir.resolve("sequential.puml").toString(), "--collapse-repeated");
+        sequentialApplication.verifyParameters();
+        runFromFetchToSave(sequentialApplication);
+        Application threadsApplication = new Application();
+        JCommander.newBuilder().addObject(threadsApplication).build().parse(
+                "-i", input, "-o", tempDir.resolve("threads.puml").toString(), "--collapse-repeated",
+                "--threads", "4");
+        threadsApplication.verifyParameters();
+        Application ioThreadsApplication = new Application();
+        JCommander.newBuilder().addObject(ioThreadsApplication).build().parse(
+                "-i", input, "-o", tempDir.resolve("io-threads.puml").toString(), "--collapse-repeated",
+                "--threads", "2", "--io-threads", "2");
+        ioThreadsApplication.verifyParameters();
+        // Test
+        threadsApplication.fetchAndParseCFiles();
+        weaveAndSave(threadsApplication);
+        ioThreadsApplication.fetchReadAndParseCFiles();
+        weaveAndSave(ioThreadsApplication);
+        // Verify
+        assertThat(threadsApplication.getPlantUmlContent()).isEqualTo(sequentialApplication.getPlantUmlContent());
+        assertThat(ioThreadsApplication.getPlantUmlContent()).isEqualTo(sequentialApplication.getPlantUmlContent());
+        assertThat(threadsApplication.callGraph.getNrOfEdges()).isEqualTo(generator.getNrOfInvokations());
+        assertThat(ioThreadsApplication.callGraph.getNrOfEdges()).isEqualTo(generator.getNrOfInvokations());
+    }
+
+    @Test
+    void parallelRunOnLargeGeneratedCodebase(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        CCodebaseGenerator generator = createGenerator(2000, 20);
+        generator.generate(tempDir.resolve("input"));
+        Application application = new Application();
+        JCommander.newBuilder().addObject(application).build().parse(
+                "-i", tempDir.resolve("input").toString(), "-o", tempDir.resolve("main.puml").toString(),
+                "--collapse-repeated", "--threads", "4");
+        application.verifyParameters();
+        // Test
+        application.fetchAndParseCFiles();
+        weaveAndSave(application);
+        // Verify
+        assertThat(application.callGraph.size()).isEqualTo(generator.getNrOfMethods());
+        assertThat(application.callGraph.getNrOfEdges()).isEqualTo(generator.getNrOfInvokations());
+        assertThat(Files.size(tempDir.resolve("main.puml"))).isGreaterThan(0L);
+    }
+
+    private CCodebaseGenerator createGenerator(int nrOfFiles, int nrOfMethodsPerFile) {
+        CCodebaseGenerator generator = new CCodebaseGenerator();
+        generator.setNrOfFiles(nrOfFiles);
+        generator.setNrOfMethodsPerFile(nrOfMethodsPerFile);
+        generator.setFanOut(3);
+        generator.setNrOfIncludesPerFile(3);
+        generator.setCycleRate(0.1);
+        generator.setMultiLineRate(0.3);
+        return generator;
+    }
+
+    private void runFromFetchToSave(Application application) throws IOException {
+        application.paths = application.fetchCFiles();
+        application.parsePaths();
+        weaveAndSave(application);
+    }
+
+    private void weaveAndSave(Application application) throws IOException {
+        application.weaveCodeTogether(application.cHeaderFiles, application.cSourceFiles, new HashMap<>(),
+                "main", "");
+        application.createPlantUmlContent(application.getStartingMethod());
+        application.savePlantUmlContent();
+    }
+
+    private int nrOfMethodDeclarations(Application application) {
+        int nrOfMethodDeclarations = 0;
+        for (CSourceFile cHeaderFile : application.cHeaderFiles) {
+            nrOfMethodDeclarations += cHeaderFile.getMethodDeclarations().size();
+        }
+        return nrOfMethodDeclarations;
+    }
+}
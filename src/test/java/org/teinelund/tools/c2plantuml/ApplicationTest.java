@@ -1,9 +1,21 @@
 package org.teinelund.tools.c2plantuml;
 
+import com.beust.jcommander.JCommander;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
-
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -21,6 +33,7 @@ public class ApplicationTest {
 
     @BeforeEach
     void init(TestInfo testInfo) {
+        NameTable.global().clear();
         this.sut = new Application();
     }
 
@@ -118,10 +131,10 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(4);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("insn_size"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("assemble"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_directives"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_pragma"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("insn_size", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("assemble", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_directives", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_pragma", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -139,8 +152,8 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(2);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("MD5End"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("colln"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("MD5End", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("colln", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -162,11 +175,11 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(5);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("src_set_fname"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("externMD5End"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("ilog2_32"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("MD5Init"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_comment"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("src_set_fname", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("externMD5End", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("ilog2_32", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("MD5Init", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_comment", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -187,11 +200,11 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(5);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("float_deffmt"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_set_limit"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_find_use_package"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("rb_insert"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("strlist_add"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("float_deffmt", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_set_limit", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_find_use_package", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("rb_insert", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("strlist_add", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -210,9 +223,9 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(3);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("ilog2_32"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("alignlog2_32"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_strnicmp"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("ilog2_32", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("alignlog2_32", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_strnicmp", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -232,9 +245,9 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(3);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("strlist_linearize"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_malloc"))).isTrue();
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_calloc"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("strlist_linearize", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_malloc", result))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("nasm_calloc", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -253,7 +266,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDeclarations().isEmpty()).isFalse();
         assertThat(result.getMethodDeclarations().size()).isEqualTo(1);
-        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_ea"))).isTrue();
+        assertThat(result.getMethodDeclarations().contains(new CMethodDeclaration("process_ea", result))).isTrue();
 
         assertThat(result.getMethodDefinitions().isEmpty()).isTrue();
     }
@@ -273,7 +286,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "set_default_limits", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "set_default_limits", result))).isTrue();
     }
 
     @Test
@@ -292,7 +305,54 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "seg_alloc", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "seg_alloc", result))).isTrue();
+    }
+
+    @Test
+    void parseSourceFileWhereFileContainsSameMethodDefinitionTwice() {
+        // Initialize
+        List<String> cHeaderFilecontent = List.of(
+                "#ifdef DEBUG",
+                "int32_t seg_alloc(void) {",
+                "    log_alloc();",
+                "}",
+                "#else",
+                "int32_t seg_alloc(void) {",
+                "    do_alloc();",
+                "}",
+                "#endif");
+        // Test
+        CSourceFile result = this.sut.parseSourceFile(cHeaderFilecontent, "seg.c");
+        // Verify
+        assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
+        CMethodImplementation methodImplementation = result.getMethodImplementation("seg_alloc");
+        assertThat(methodImplementation).isSameAs(result.getMethodDefinitions().get(0));
+        assertThat(methodImplementation.getMethodInvokationNames().size()).isEqualTo(2);
+        assertThat(methodImplementation.getMethodInvokationNames().get(0)).isEqualTo("log_alloc");
+        assertThat(methodImplementation.getMethodInvokationNames().get(1)).isEqualTo("do_alloc");
+    }
+
+    @Test
+    void methodImplementationsAreEqualByNameAndSourceFile() {
+        // Initialize
+        CSourceFile segC = new CSourceFile("seg.c");
+        // Another seg.c, in another directory.
+        CSourceFile otherSegC = new CSourceFile("seg.c");
+        CSourceFile mainC = new CSourceFile("main.c");
+        // Test
+        CMethodImplementation segAlloc = new CMethodImplementation("seg_alloc", segC);
+        CMethodImplementation sameSegAlloc = new CMethodImplementation("seg_alloc", segC);
+        CMethodImplementation otherSegAlloc = new CMethodImplementation("seg_alloc", otherSegC);
+        CMethodImplementation mainSegAlloc = new CMethodImplementation("seg_alloc", mainC);
+        // Verify
+        assertThat(segAlloc).isEqualTo(sameSegAlloc);
+        assertThat(segAlloc.hashCode()).isEqualTo(sameSegAlloc.hashCode());
+        assertThat(segAlloc).isNotEqualTo(otherSegAlloc);
+        assertThat(segAlloc).isNotEqualTo(mainSegAlloc);
+        assertThat(new CMethodDeclaration("seg_alloc", segC)).isEqualTo(new CMethodDeclaration("seg_alloc", segC));
+        assertThat(new CMethodDeclaration("seg_alloc", segC)).isNotEqualTo(
+                new CMethodDeclaration("seg_alloc", otherSegC));
+        assertThat(new CMethodDeclaration("seg_alloc", segC)).isNotEqualTo(new CMethodDeclaration("seg_alloc", mainC));
     }
 
     @Test
@@ -311,7 +371,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "list_pragma", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "list_pragma", result))).isTrue();
     }
 
     @Test
@@ -330,7 +390,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "begintemp", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "begintemp", result))).isTrue();
     }
 
     @Test
@@ -349,7 +409,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "process_pragma", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "process_pragma", result))).isTrue();
     }
 
     @Test
@@ -368,7 +428,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "utf8_to_16be", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "utf8_to_16be", result))).isTrue();
     }
 
     @Test
@@ -387,7 +447,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "perm_alloc", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "perm_alloc", result))).isTrue();
     }
 
     @Test
@@ -406,7 +466,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "tok_smac_param", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "tok_smac_param", result))).isTrue();
     }
 
     @Test
@@ -425,7 +485,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "error_where", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "error_where", result))).isTrue();
     }
 
     @Test
@@ -444,7 +504,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "tok_check_len", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "tok_check_len", result))).isTrue();
     }
 
     @Test
@@ -463,7 +523,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "pp_concat_match", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "pp_concat_match", result))).isTrue();
     }
 
     @Test
@@ -482,7 +542,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "list_error", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "list_error", result))).isTrue();
     }
 
     @Test
@@ -502,7 +562,7 @@ public class ApplicationTest {
 
         assertThat(result.getMethodDefinitions().isEmpty()).isFalse();
         assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
-        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "evaluate", null))).isTrue();
+        assertThat(result.getMethodDefinitions().contains(new CMethodImplementation( "evaluate", result))).isTrue();
     }
 
     @Test
@@ -806,6 +866,296 @@ public class ApplicationTest {
         assertThat(result.getMethodDeclarations().get(1).getName()).isEqualTo("nasm_unquote");
     }
 
+    @Test
+    void parseSourceFileWhereCommentContainsUtf8CharacterReadAsIso88591() {
+        // Initialize
+        // U+00C5, A with ring above, encoded as UTF-8 is the bytes C3 85. Read as ISO-8859-1, 0x85 becomes the NEL
+        // line terminator.
+        List<String> cHeaderFilecontent = List.of(
+                "void some_function(void)",
+                "{",
+                "    begintemp(); /* R\u00C3\u0085d */",
+                "    finishtemp();",
+                "}");
+        // Test
+        CSourceFile result = this.sut.parseSourceFile(cHeaderFilecontent, "");
+        // Verify
+        assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
+        CMethodImplementation methodImplementation = result.getMethodDefinitions().get(0);
+        assertThat(methodImplementation.getMethodInvokationNames().size()).isEqualTo(2);
+        assertThat(methodImplementation.getMethodInvokationNames().get(0)).isEqualTo("begintemp");
+        assertThat(methodImplementation.getMethodInvokationNames().get(1)).isEqualTo("finishtemp");
+    }
+
+    @Test
+    void parseSourceFileFromReader() throws IOException {
+        // Initialize
+        BufferedReader reader = new BufferedReader(new StringReader(
+                "#include \"order.h\"\r\n" +
+                "static void begintemp(void)\r\n" +
+                "{\r\n" +
+                "    addtotemp(EXPR_SIMPLE, scalar);\r\n" +
+                "}"));
+        // Test
+        CSourceFile result = this.sut.parseSourceFile(reader, "order.c");
+        // Verify
+        assertThat(result.getFileName()).isEqualTo("order.c");
+        assertThat(result.getIncludeHeaderFiles().get(0)).isEqualTo("order.h");
+        assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
+        CMethodImplementation methodImplementation = result.getMethodDefinitions().get(0);
+        assertThat(methodImplementation.getName()).isEqualTo("begintemp");
+        assertThat(methodImplementation.getMethodInvokationNames().size()).isEqualTo(1);
+        assertThat(methodImplementation.getMethodInvokationNames().get(0)).isEqualTo("addtotemp");
+    }
+
+    @Test
+    void parsePathWithMemoryMappedFile(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path path = tempDir.resolve("order.c");
+        Files.writeString(path,
+                "#include \"order.h\"\r\n" +
+                "static void begintemp(void)\r" +
+                "{\n" +
+                "    addtotemp(EXPR_SIMPLE, scalar);\n" +
+                "}", StandardCharsets.ISO_8859_1);
+        JCommander.newBuilder().addObject(this.sut).build().parse("--io=mmap");
+        // Test
+        CSourceFile result = this.sut.parsePath(path);
+        // Verify
+        assertThat(result.getFileName()).isEqualTo("order.c");
+        assertThat(result.getIncludeHeaderFiles().get(0)).isEqualTo("order.h");
+        assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
+        CMethodImplementation methodImplementation = result.getMethodDefinitions().get(0);
+        assertThat(methodImplementation.getName()).isEqualTo("begintemp");
+        assertThat(methodImplementation.getMethodInvokationNames().get(0)).isEqualTo("addtotemp");
+    }
+
+    @Test
+    void parsePathWithCacheStoresContentHashOfParsedFile(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path path = tempDir.resolve("order.c");
+        Files.writeString(path, "void createOrder(void) {\n    log();\n}\n", StandardCharsets.ISO_8859_1);
+        this.sut.cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"));
+        this.sut.parsePath(path);
+        Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() + 60_000));
+        // Test
+        CSourceFile result = this.sut.cSourceFileCache.get(path, Files.readAttributes(path, BasicFileAttributes.class));
+        // Verify
+        assertThat(result).isNotNull();
+        assertThat(result.getMethodDefinitions().get(0).getName()).isEqualTo("createOrder");
+        assertThat(result.getMethodDefinitions().get(0).getMethodInvokationNames().get(0)).isEqualTo("log");
+    }
+
+    @Test
+    void parsePathWithCacheCountsCachedFile(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path path = tempDir.resolve("order.c");
+        Files.writeString(path, "void createOrder(void) {\n    log();\n}\n", StandardCharsets.ISO_8859_1);
+        this.sut.cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"));
+        this.sut.statistics = new RunStatistics(true);
+        this.sut.parsePath(path);
+        this.sut.statistics = new RunStatistics(true);
+        // Test
+        this.sut.parsePath(path);
+        // Verify
+        assertThat(this.sut.statistics.getNrOfLines()).isEqualTo(3);
+        assertThat(this.sut.statistics.getNrOfBytes()).isEqualTo(Files.size(path));
+    }
+
+    @Test
+    void fetchReadAndParseCFilesWithCacheCountsCachedFiles(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path inputPath = Files.createDirectories(tempDir.resolve("input"));
+        for (int i = 0; i < 5; i++) {
+            Files.write(inputPath.resolve("file" + i + ".c"), List.of("void method" + i + "(void) {", "}"),
+                    StandardCharsets.ISO_8859_1);
+        }
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "2", "--io-threads", "2");
+        this.sut.inputPath = inputPath;
+        this.sut.cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"));
+        this.sut.statistics = new RunStatistics(true);
+        this.sut.fetchReadAndParseCFiles();
+        long nrOfLines = this.sut.statistics.getNrOfLines();
+        long nrOfBytes = this.sut.statistics.getNrOfBytes();
+        this.sut.cSourceFiles.clear();
+        this.sut.statistics = new RunStatistics(true);
+        // Test
+        this.sut.fetchReadAndParseCFiles();
+        // Verify
+        assertThat(nrOfLines).isEqualTo(10);
+        assertThat(this.sut.statistics.getNrOfLines()).isEqualTo(nrOfLines);
+        assertThat(this.sut.statistics.getNrOfBytes()).isEqualTo(nrOfBytes);
+    }
+
+    @Test
+    void parsePathsWithSeveralThreadsKeepsPathOrder(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        List<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Path path = tempDir.resolve("file" + i + (i % 2 == 0 ? ".c" : ".h"));
+            Files.write(path, List.of("#include \"file" + i + ".h\""), StandardCharsets.ISO_8859_1);
+            paths.add(path);
+        }
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "4");
+        this.sut.paths = paths;
+        // Test
+        this.sut.parsePaths();
+        // Verify
+        assertThat(this.sut.cSourceFiles.size()).isEqualTo(10);
+        assertThat(this.sut.cHeaderFiles.size()).isEqualTo(10);
+        int i = 0;
+        for (CSourceFile cSourceFile : this.sut.cSourceFiles) {
+            assertThat(cSourceFile.getFileName()).isEqualTo("file" + i + ".c");
+            assertThat(cSourceFile.getIncludeHeaderFiles().get(0)).isEqualTo("file" + i + ".h");
+            i += 2;
+        }
+        i = 1;
+        for (CSourceFile cHeaderFile : this.sut.cHeaderFiles) {
+            assertThat(cHeaderFile.getFileName()).isEqualTo("file" + i + ".h");
+            i += 2;
+        }
+    }
+
+    @Test
+    void fetchAndParseCFilesGivesSameResultAsFetchCFilesAndParsePaths(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        for (int i = 0; i < 50; i++) {
+            Path directory = Files.createDirectories(tempDir.resolve("module" + (i % 7)));
+            Files.write(directory.resolve("file" + i + (i % 3 == 0 ? ".h" : ".c")),
+                    List.of("#include \"file" + i + ".h\"", "void method" + i + "(void) {", "}"),
+                    StandardCharsets.ISO_8859_1);
+        }
+        Application sequentialApplication = new Application();
+        sequentialApplication.inputPath = tempDir;
+        sequentialApplication.paths = sequentialApplication.fetchCFiles();
+        sequentialApplication.parsePaths();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "4");
+        this.sut.inputPath = tempDir;
+        // Test
+        this.sut.fetchAndParseCFiles();
+        // Verify
+        assertThat(this.sut.paths.size()).isEqualTo(50);
+        assertThat(List.copyOf(this.sut.paths)).isEqualTo(List.copyOf(sequentialApplication.paths));
+        assertThat(fileNames(this.sut.cHeaderFiles)).isEqualTo(fileNames(sequentialApplication.cHeaderFiles));
+        assertThat(fileNames(this.sut.cSourceFiles)).isEqualTo(fileNames(sequentialApplication.cSourceFiles));
+        assertThat(this.sut.cHeaderFiles.size()).isEqualTo(17);
+    }
+
+    @Test
+    void fetchReadAndParseCFilesGivesSameResultAsFetchCFilesAndParsePaths(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path inputPath = Files.createDirectories(tempDir.resolve("input"));
+        for (int i = 0; i < 50; i++) {
+            Path directory = Files.createDirectories(inputPath.resolve("module" + (i % 7)));
+            Files.write(directory.resolve("file" + i + (i % 3 == 0 ? ".h" : ".c")),
+                    List.of("#include \"file" + i + ".h\"", "void method" + i + "(void) {", "    log();", "}"),
+                    StandardCharsets.ISO_8859_1);
+        }
+        Application sequentialApplication = new Application();
+        sequentialApplication.inputPath = inputPath;
+        sequentialApplication.paths = sequentialApplication.fetchCFiles();
+        sequentialApplication.parsePaths();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "2", "--io-threads", "3");
+        this.sut.inputPath = inputPath;
+        this.sut.cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"));
+        // Test
+        this.sut.fetchReadAndParseCFiles();
+        // Verify
+        assertThat(List.copyOf(this.sut.paths)).isEqualTo(List.copyOf(sequentialApplication.paths));
+        assertThat(fileNames(this.sut.cHeaderFiles)).isEqualTo(fileNames(sequentialApplication.cHeaderFiles));
+        assertThat(fileNames(this.sut.cSourceFiles)).isEqualTo(fileNames(sequentialApplication.cSourceFiles));
+        CSourceFile cSourceFile = this.sut.cSourceFiles.iterator().next();
+        assertThat(cSourceFile.getMethodDefinitions().get(0).getMethodInvokationNames().get(0)).isEqualTo("log");
+        Path path = this.sut.paths.iterator().next();
+        assertThat(this.sut.cSourceFileCache.get(path, Files.readAttributes(path, BasicFileAttributes.class)))
+                .isNotNull();
+    }
+
+    @Test
+    void fetchAndParseReachableCFilesParsesOnlyReachableFiles(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path inputPath = Files.createDirectories(tempDir.resolve("input"));
+        Files.write(inputPath.resolve("main.c"), List.of("#include \"order.h\"", "int main(void) {",
+                "    createOrder();", "}"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("order.h"), List.of("void createOrder(void);"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("order.c"), List.of("#include \"log.h\"", "void createOrder(void) {",
+                "    log_write();", "}"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("log.h"), List.of("void log_write(void);"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("log.c"), List.of("void log_write(void) {", "}"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("statistics.h"), List.of("void count(void);"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("statistics.c"), List.of("#include \"log.h\"", "void count(void) {",
+                "    log_write();", "}"), StandardCharsets.ISO_8859_1);
+        Application eagerApplication = new Application();
+        eagerApplication.inputPath = inputPath;
+        eagerApplication.paths = eagerApplication.fetchCFiles();
+        eagerApplication.parsePaths();
+        eagerApplication.weaveCodeTogether(eagerApplication.cHeaderFiles, eagerApplication.cSourceFiles,
+                eagerApplication.cSourceFileMap, "main", "main.c");
+        eagerApplication.createPlantUmlContent(eagerApplication.getStartingMethod());
+        JCommander.newBuilder().addObject(this.sut).build().parse("--lazy", "--source", "main.c");
+        this.sut.inputPath = inputPath;
+        // Test
+        this.sut.fetchAndParseReachableCFiles();
+        // Verify
+        assertThat(List.copyOf(this.sut.paths)).isEqualTo(List.of(inputPath.resolve("log.c"),
+                inputPath.resolve("log.h"), inputPath.resolve("main.c"), inputPath.resolve("order.c"),
+                inputPath.resolve("order.h")));
+        this.sut.weaveCodeTogether(this.sut.cHeaderFiles, this.sut.cSourceFiles, this.sut.cSourceFileMap, "main",
+                "main.c");
+        this.sut.createPlantUmlContent(this.sut.getStartingMethod());
+        assertThat(this.sut.getPlantUmlContent()).isEqualTo(eagerApplication.getPlantUmlContent());
+        assertThat(this.sut.getPlantUmlContent()).contains("order.c -> log.c ++ : log_write");
+    }
+
+    @Test
+    void fetchAndParseCFilesWhereInputPathDoesNotExist(@TempDir Path tempDir) {
+        // Initialize
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "4");
+        this.sut.inputPath = tempDir.resolve("missing");
+        // Test
+        // Verify
+        assertThrows(IOException.class, () -> this.sut.fetchAndParseCFiles());
+    }
+
+    @Test
+    void executeWithStatsJson(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path inputPath = Files.createDirectories(tempDir.resolve("input"));
+        Files.write(inputPath.resolve("order.h"), List.of("void createOrder(void);"), StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("order.c"), List.of("void createOrder(void) {", "    printf(\"order\");", "}"),
+                StandardCharsets.ISO_8859_1);
+        Files.write(inputPath.resolve("main.c"), List.of("#include \"order.h\"", "int main(void) {",
+                "    createOrder();", "}"), StandardCharsets.ISO_8859_1);
+        Path statsJsonPath = tempDir.resolve("stats.json");
+        JCommander jc = JCommander.newBuilder().addObject(this.sut).build();
+        jc.parse("-i", inputPath.toString(), "-o", tempDir.resolve("main.puml").toString(),
+                "--stats-json", statsJsonPath.toString());
+        // Test
+        this.sut.execute(jc);
+        // Verify
+        String statsJson = Files.readString(statsJsonPath, StandardCharsets.UTF_8);
+        assertThat(statsJson.contains("{\"name\": \"fetchCFiles\"")).isTrue();
+        assertThat(statsJson.contains("{\"name\": \"parsePaths\"")).isTrue();
+        assertThat(statsJson.contains("{\"name\": \"weaveCodeTogether\"")).isTrue();
+        assertThat(statsJson.contains("{\"name\": \"writePlantUmlContent\"")).isTrue();
+        assertThat(this.sut.statistics.getNrOfFiles()).isEqualTo(3L);
+        assertThat(this.sut.statistics.getNrOfLines()).isEqualTo(8L);
+        assertThat(this.sut.statistics.getNrOfBytes()).isEqualTo(Files.size(inputPath.resolve("order.h")) +
+                Files.size(inputPath.resolve("order.c")) + Files.size(inputPath.resolve("main.c")));
+        assertThat(this.sut.statistics.getNrOfFunctions()).isEqualTo(2L);
+        assertThat(this.sut.statistics.getNrOfEdges()).isEqualTo(1L);
+        assertThat(this.sut.statistics.getNrOfUnresolvedCalls()).isEqualTo(1L);
+        assertThat(this.sut.statistics.getNrOfOutputLines()).isEqualTo(8L);
+    }
+
+    private List<String> fileNames(Collection<CSourceFile> cSourceFiles) {
+        List<String> fileNames = new ArrayList<>();
+        for (CSourceFile cSourceFile : cSourceFiles) {
+            fileNames.add(cSourceFile.getFileName());
+        }
+        return fileNames;
+    }
+
     @Test
     void weaveCodeTogherWhereAllCollectionsAreEmpty() {
         // Initialize
@@ -958,6 +1308,192 @@ public class ApplicationTest {
         assertThat(resultCreateOrderMethodImpl.getMethodInvokations().isEmpty()).isTrue();
     }
 
+    @Test
+    void weaveCodeTogherWhereInvokedMethodIsImplementedInSourceFileAndInIncludedHeaderFile() {
+        // Initialize
+        CSourceFile logH = new CSourceFile("log.h");
+        logH.addMethodDeclaration("log");
+        CSourceFile logC = new CSourceFile("log.c");
+        logC.addMethodImplementation("log");
+        CSourceFile orderC = new CSourceFile("order.c");
+        orderC.addIncludeHeaderFile("log.h");
+        orderC.addMethodImplementation("createOrder");
+        orderC.addMethodInvokation("log");
+        orderC.addMethodInvokation("printf");
+        orderC.addMethodImplementation("log");
+        List<CSourceFile> cHeaderFiles = List.of(logH);
+        List<CSourceFile> cSourceFiles = List.of(logC, orderC);
+        Map<String, CSourceFile> cSourceFileMap = new HashMap<>();
+        // Test
+        this.sut.weaveCodeTogether(cHeaderFiles, cSourceFiles, cSourceFileMap, "createOrder", "");
+        // Verify
+        CMethodImplementation createOrder = this.sut.getStartingMethod();
+        assertThat(createOrder.getName()).isEqualTo("createOrder");
+        assertThat(createOrder.getMethodInvokations().size()).isEqualTo(2);
+        assertThat(createOrder.getMethodInvokations().get(0)).isSameAs(orderC.getMethodDefinitions().get(1));
+        assertThat(createOrder.getMethodInvokations().get(1)).isSameAs(logC.getMethodDefinitions().get(0));
+    }
+
+    @Test
+    void readStartMethodsFromMethodsFile(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path methodsPath = tempDir.resolve("methods.txt");
+        Files.write(methodsPath, List.of("# Public API", "", "createOrder", "  processOrders   orderengine.c  "),
+                StandardCharsets.UTF_8);
+        JCommander.newBuilder().addObject(this.sut).build().parse("--method", "main",
+                "--methods-file", methodsPath.toString());
+        // Test
+        List<StartMethod> result = this.sut.readStartMethods();
+        // Verify
+        assertThat(this.sut.isBatchMode()).isTrue();
+        assertThat(result.size()).isEqualTo(3);
+        assertThat(result.get(0).getMethodName()).isEqualTo("main");
+        assertThat(result.get(0).getDiagramFileName()).isEqualTo("main.puml");
+        assertThat(result.get(1).getMethodName()).isEqualTo("createOrder");
+        assertThat(result.get(1).getSourceFileName()).isEqualTo("");
+        assertThat(result.get(2).getMethodName()).isEqualTo("processOrders");
+        assertThat(result.get(2).getSourceFileName()).isEqualTo("orderengine.c");
+        assertThat(result.get(2).getDiagramFileName()).isEqualTo("orderengine.processOrders.puml");
+    }
+
+    @Test
+    void readStartMethodsWhereMethodNameIsNotCIdentifier(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path methodsPath = tempDir.resolve("methods.txt");
+        Files.write(methodsPath, List.of("createOrder", "../../main"), StandardCharsets.UTF_8);
+        // Test and verify
+        Exception exception = assertThrows(IllegalStateException.class, () -> this.sut.readStartMethods(methodsPath));
+        assertThat(exception.getMessage()).contains("Line 2").contains("'../../main'");
+    }
+
+    @Test
+    void readStartMethodsWhereSourceFileNameIsNotFileName(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path methodsPath = tempDir.resolve("methods.txt");
+        Files.write(methodsPath, List.of("createOrder ../order.c"), StandardCharsets.UTF_8);
+        // Test and verify
+        Exception exception = assertThrows(IllegalStateException.class, () -> this.sut.readStartMethods(methodsPath));
+        assertThat(exception.getMessage()).contains("Line 1").contains("'../order.c'");
+    }
+
+    @Test
+    void isMethodName() {
+        // Verify
+        assertThat(StartMethod.isMethodName("_processOrders2")).isTrue();
+        assertThat(StartMethod.isMethodName("2processOrders")).isFalse();
+        assertThat(StartMethod.isMethodName("..")).isFalse();
+        assertThat(StartMethod.isMethodName("order/main")).isFalse();
+        assertThat(StartMethod.isMethodName("")).isFalse();
+    }
+
+    @Test
+    void createPlantUmlFilesWithSeveralStartMethods(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        List<CSourceFile> cHeaderFiles = createHeaderFiles(SourceFileState.TWO_SOURCE_FILES);
+        List<CSourceFile> cSourceFiles = createImplementationFiles(SourceFileState.TWO_SOURCE_FILES);
+        this.sut.weaveCodeTogether(cHeaderFiles, cSourceFiles, new HashMap<>());
+        this.sut.outputPath = tempDir.resolve("diagrams");
+        List<StartMethod> startMethods = List.of(new StartMethod("processOrders", ""),
+                new StartMethod("createOrder", "order.c"));
+        // Test
+        this.sut.createPlantUmlFiles(startMethods);
+        // Verify
+        String processOrders = Files.readString(tempDir.resolve("diagrams").resolve("processOrders.puml"));
+        assertThat(processOrders).contains("Invoker -> orderengine.c ++ : processOrders");
+        assertThat(processOrders).contains("orderengine.c -> order.c ++ : createOrder");
+        String createOrder = Files.readString(tempDir.resolve("diagrams").resolve("order.createOrder.puml"));
+        assertThat(createOrder).contains("Invoker -> order.c ++ : createOrder");
+        assertThat(createOrder).doesNotContain("processOrders");
+    }
+
+    @Test
+    void createPlantUmlFilesWithSeveralThreads(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        List<CSourceFile> cHeaderFiles = createHeaderFiles(SourceFileState.THREE_SOURCE_FILES);
+        List<CSourceFile> cSourceFiles = createImplementationFiles(SourceFileState.THREE_SOURCE_FILES);
+        this.sut.weaveCodeTogether(cHeaderFiles, cSourceFiles, new HashMap<>());
+        List<StartMethod> startMethods = List.of(new StartMethod("processOrders", "orderengine.c"),
+                new StartMethod("processOrders", "orderstatistics.c"), new StartMethod("createOrder", ""),
+                new StartMethod("initializeOrder", ""));
+        this.sut.outputPath = tempDir.resolve("sequential");
+        this.sut.createPlantUmlFiles(startMethods);
+        JCommander.newBuilder().addObject(this.sut).build().parse("--threads", "4");
+        this.sut.outputPath = tempDir.resolve("parallel");
+        // Test
+        this.sut.createPlantUmlFiles(startMethods);
+        // Verify
+        for (String fileName : List.of("orderengine.processOrders.puml", "orderstatistics.processOrders.puml",
+                "createOrder.puml", "initializeOrder.puml")) {
+            String sequential = Files.readString(tempDir.resolve("sequential").resolve(fileName));
+            String parallel = Files.readString(tempDir.resolve("parallel").resolve(fileName));
+            assertThat(parallel).isEqualTo(sequential);
+        }
+        assertThat(Files.readString(tempDir.resolve("parallel").resolve("orderstatistics.processOrders.puml")))
+                .contains("orderstatistics.c -> order.c ++ : createOrder");
+    }
+
+    @Test
+    void createPlantUmlFilesWhereOneStartMethodIsNotFound(@TempDir Path tempDir) {
+        // Initialize
+        List<CSourceFile> cHeaderFiles = createHeaderFiles(SourceFileState.TWO_SOURCE_FILES);
+        List<CSourceFile> cSourceFiles = createImplementationFiles(SourceFileState.TWO_SOURCE_FILES);
+        this.sut.weaveCodeTogether(cHeaderFiles, cSourceFiles, new HashMap<>());
+        this.sut.outputPath = tempDir;
+        List<StartMethod> startMethods = List.of(new StartMethod("deleteOrder", ""),
+                new StartMethod("createOrder", ""));
+        PrintStream standardOut = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true));
+        // Test
+        try {
+            assertThrows(IllegalStateException.class, () -> this.sut.createPlantUmlFiles(startMethods));
+        }
+        finally {
+            System.setOut(standardOut);
+        }
+        // Verify
+        assertThat(out.toString()).contains("[ERROR] Method 'deleteOrder' is not found.");
+        assertThat(Files.exists(tempDir.resolve("createOrder.puml"))).isTrue();
+        assertThat(Files.exists(tempDir.resolve("deleteOrder.puml"))).isFalse();
+    }
+
+    @Test
+    void verifyStartMethodsWhereTwoStartMethodsGiveSameDiagramFile(@TempDir Path tempDir) {
+        // Initialize
+        this.sut.outputPath = tempDir;
+        List<StartMethod> startMethods = List.of(new StartMethod("main", ""), new StartMethod("createOrder", ""),
+                new StartMethod("main", ""));
+        // Test
+        IllegalStateException result = assertThrows(IllegalStateException.class,
+                () -> this.sut.verifyStartMethods(startMethods));
+        // Verify
+        assertThat(result.getMessage()).contains("'main.puml'");
+    }
+
+    @Test
+    void verifyStartMethodsWhereDiagramFileExists(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        this.sut.outputPath = tempDir;
+        Files.writeString(tempDir.resolve("order.createOrder.puml"), "@startuml");
+        List<StartMethod> startMethods = List.of(new StartMethod("processOrders", ""),
+                new StartMethod("createOrder", "order.c"));
+        // Test
+        // Verify
+        assertThrows(IllegalStateException.class, () -> this.sut.verifyStartMethods(startMethods));
+    }
+
+    @Test
+    void verifyStartMethodsWhereDiagramFilesAreUnique(@TempDir Path tempDir) {
+        // Initialize
+        this.sut.outputPath = tempDir.resolve("diagrams");
+        List<StartMethod> startMethods = List.of(new StartMethod("processOrders", "orderengine.c"),
+                new StartMethod("processOrders", "orderstatistics.c"), new StartMethod("processOrders", ""));
+        // Test
+        this.sut.verifyStartMethods(startMethods);
+        // Verify
+        assertThat(Files.exists(tempDir.resolve("diagrams"))).isFalse();
+    }
+
     enum SourceFileState {TWO_SOURCE_FILES, THREE_SOURCE_FILES, ONE_SOURCE_FILE};
 
     private List<CSourceFile> createHeaderFiles(SourceFileState sourceFileState) {
@@ -1032,6 +1568,51 @@ public class ApplicationTest {
         assertThat(result).contains("orderengine.c -> order.c ++ : initOrder");
     }
 
+    @Test
+    public void createPlantUmlContentWithDeepCallChain() {
+        // Initialize
+        int depth = 100_000;
+        CMethodImplementation startMethod = createDeepCallChain(depth);
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result.length).isEqualTo(4 + 2 * depth);
+        assertThat(result[3]).isEqualTo("Invoker -> a.c ++ : method0");
+        assertThat(result[4]).isEqualTo("a.c -> b.c ++ : method1");
+        assertThat(result[2 + depth]).isEqualTo("a.c -> b.c ++ : method" + (depth - 1));
+        assertThat(result[3 + depth]).isEqualTo("b.c --> a.c");
+        assertThat(result[2 + 2 * depth]).isEqualTo("a.c --> Invoker");
+        assertThat(result[3 + 2 * depth]).isEqualTo("@enduml");
+    }
+
+    @Test
+    public void writePlantUmlContentWritesSameContentAsCreatePlantUmlContent(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodCyclicInvokation();
+        Path outputPath = tempDir.resolve("diagram.puml");
+        this.sut.createPlantUmlContent(startMethod);
+        // Test
+        this.sut.writePlantUmlContent(startMethod, outputPath);
+        // Verify
+        assertThat(Files.readString(outputPath, StandardCharsets.UTF_8)).isEqualTo(this.sut.getPlantUmlContent());
+    }
+
+    // Alternates between two source files, so the same source file heuristic does not stop the chain.
+    CMethodImplementation createDeepCallChain(int depth) {
+        CSourceFile aSourceFile = new CSourceFile("a.c");
+        CSourceFile bSourceFile = new CSourceFile("b.c");
+        CMethodImplementation startMethod = new CMethodImplementation("method0", aSourceFile);
+        CMethodImplementation method = startMethod;
+        for (int i = 1; i < depth; i++) {
+            CMethodImplementation invokedMethod = new CMethodImplementation("method" + i,
+                    i % 2 == 0 ? aSourceFile : bSourceFile);
+            method.addMethodInvokation(invokedMethod);
+            method = invokedMethod;
+        }
+        return startMethod;
+    }
+
     CMethodImplementation createStartMethod() {
         CSourceFile orderEngineSourceFile = new CSourceFile("orderengine.c");
         CMethodImplementation startMethod = new CMethodImplementation("createOrder", orderEngineSourceFile);
@@ -1061,6 +1642,223 @@ public class ApplicationTest {
         assertThat(nrOfMatches).isEqualTo(2);
     }
 
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsed() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodRepeatedInvokation();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[3]).isEqualTo("Invoker -> orderengine.c ++ : processOrders");
+        assertThat(result[4]).isEqualTo("orderengine.c -> order.c ++ : createOrder");
+        assertThat(result[5]).isEqualTo("order.c -> log.c ++ : log_write");
+        assertThat(result[6]).isEqualTo("log.c -> file.c ++ : file_write");
+        assertThat(result[7]).isEqualTo("file.c --> log.c");
+        assertThat(result[8]).isEqualTo("log.c --> order.c");
+        assertThat(result[9]).isEqualTo("order.c --> orderengine.c");
+        assertThat(result[10]).isEqualTo("orderengine.c -> log.c ++ : log_write");
+        assertThat(result[11]).isEqualTo("ref over log.c : log_write");
+        assertThat(result[12]).isEqualTo("log.c --> orderengine.c");
+        assertThat(result[13]).isEqualTo("orderengine.c -> file.c ++ : file_write");
+        assertThat(result[14]).isEqualTo("file.c --> orderengine.c");
+        assertThat(result[15]).isEqualTo("orderengine.c --> Invoker");
+        assertThat(result[16]).isEqualTo("@enduml");
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodNotCollapsed() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodRepeatedInvokation();
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String result = this.sut.getPlantUmlContent();
+        assertThat(result).doesNotContain("ref over");
+        assertThat(result.split("log.c -> file.c", -1).length).isEqualTo(3);
+    }
+
+    @Test
+    public void createPlantUmlContentWithMaxDepth() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodRepeatedInvokation();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--max-depth", "2");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[3]).isEqualTo("Invoker -> orderengine.c ++ : processOrders");
+        assertThat(result[4]).isEqualTo("orderengine.c -> order.c ++ : createOrder");
+        assertThat(result[5]).isEqualTo("note over order.c : 1 invokations not shown, max depth reached");
+        assertThat(result[6]).isEqualTo("order.c --> orderengine.c");
+        assertThat(result[7]).isEqualTo("orderengine.c -> log.c ++ : log_write");
+        assertThat(result[8]).isEqualTo("note over log.c : 1 invokations not shown, max depth reached");
+        assertThat(result[9]).isEqualTo("log.c --> orderengine.c");
+        assertThat(result[10]).isEqualTo("orderengine.c -> file.c ++ : file_write");
+        assertThat(result[11]).isEqualTo("file.c --> orderengine.c");
+        assertThat(result[12]).isEqualTo("orderengine.c --> Invoker");
+    }
+
+    @Test
+    public void createPlantUmlContentWithMaxNodes() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodRepeatedInvokation();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--max-nodes", "3");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[5]).isEqualTo("order.c -> log.c ++ : log_write");
+        assertThat(result[6]).isEqualTo("note over log.c : 1 invokations not shown, max nodes reached");
+        assertThat(result[7]).isEqualTo("log.c --> order.c");
+        assertThat(result[8]).isEqualTo("order.c --> orderengine.c");
+        assertThat(result[9]).isEqualTo("note over orderengine.c : 2 invokations not shown, max nodes reached");
+        assertThat(result[10]).isEqualTo("orderengine.c --> Invoker");
+        assertThat(result[11]).isEqualTo("@enduml");
+    }
+
+    @Test
+    public void createPlantUmlContentWithMaxOutputBytes() {
+        // Initialize
+        CMethodImplementation startMethod = createDeepCallChain(1000);
+        JCommander.newBuilder().addObject(this.sut).build().parse("--max-output-bytes", "1000");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String result = this.sut.getPlantUmlContent();
+        assertThat(result.length()).isLessThan(2000);
+        assertThat(result).contains("1 invokations not shown, max output bytes reached");
+        assertThat(result.split(" -> ", -1).length).isEqualTo(result.split(" --> ", -1).length);
+        assertThat(result).endsWith("a.c --> Invoker" + System.lineSeparator() + "@enduml" + System.lineSeparator());
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsedAndMaxDepth() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodWithMethodFirstInvokedDeep();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated", "--max-depth", "3");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[5]).isEqualTo("a.c -> x.c ++ : fx");
+        assertThat(result[6]).isEqualTo("note over x.c : 1 invokations not shown, max depth reached");
+        assertThat(result[9]).isEqualTo("main.c -> x.c ++ : fx");
+        assertThat(result[10]).isEqualTo("x.c -> y.c ++ : fy");
+        assertThat(this.sut.getPlantUmlContent()).doesNotContain("ref over");
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsedAndMaxNodes() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodWithMethodFirstInvokedDeep();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated", "--max-nodes", "3");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String result = this.sut.getPlantUmlContent();
+        assertThat(result).contains("a.c -> x.c ++ : fx" + System.lineSeparator() +
+                "note over x.c : 1 invokations not shown, max nodes reached");
+        // The limit is still reached at the later invokation of fx, which is not expanded either, and is not
+        // referred to.
+        assertThat(result).contains("note over main.c : 1 invokations not shown, max nodes reached");
+        assertThat(result).doesNotContain("ref over");
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsedAndMaxOutputBytes() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodWithMethodFirstInvokedDeep();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated", "--max-output-bytes",
+                "100");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String result = this.sut.getPlantUmlContent();
+        assertThat(result).contains("a.c -> x.c ++ : fx" + System.lineSeparator() +
+                "note over x.c : 1 invokations not shown, max output bytes reached");
+        assertThat(result).doesNotContain("ref over");
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsedWhereFirstInvokationIsInSameSourceFile() {
+        // Initialize
+        CSourceFile mainSourceFile = new CSourceFile("main.c");
+        CMethodImplementation logMethod = new CMethodImplementation("log", new CSourceFile("log.c"));
+        CMethodImplementation flushMethod = new CMethodImplementation("flush", mainSourceFile);
+        flushMethod.addMethodInvokation(logMethod);
+        CMethodImplementation closeMethod = new CMethodImplementation("close", mainSourceFile);
+        closeMethod.addMethodInvokation(flushMethod);
+        CMethodImplementation mainMethod = new CMethodImplementation("main", mainSourceFile);
+        mainMethod.addMethodInvokation(closeMethod);
+        mainMethod.addMethodInvokation(flushMethod);
+        mainMethod.addMethodInvokation(flushMethod);
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated");
+        // Test
+        this.sut.createPlantUmlContent(mainMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[3]).isEqualTo("Invoker -> main.c ++ : main");
+        assertThat(result[4]).isEqualTo("main.c -> main.c ++ : close");
+        // The second invokation in a row within main.c is not expanded, and not referred to.
+        assertThat(result[5]).isEqualTo("main.c -> main.c ++ : flush");
+        assertThat(result[6]).isEqualTo("main.c --> main.c");
+        assertThat(result[7]).isEqualTo("main.c --> main.c");
+        // So flush is first expanded here.
+        assertThat(result[8]).isEqualTo("main.c -> main.c ++ : flush");
+        assertThat(result[9]).isEqualTo("main.c -> log.c ++ : log");
+        assertThat(result[10]).isEqualTo("log.c --> main.c");
+        assertThat(result[11]).isEqualTo("main.c --> main.c");
+        assertThat(result[12]).isEqualTo("main.c -> main.c ++ : flush");
+        assertThat(result[13]).isEqualTo("ref over main.c : flush");
+    }
+
+    @Test
+    public void createPlantUmlContentWithRepeatedMethodCollapsedWhereInvokationIsCyclic() {
+        // Initialize
+        CMethodImplementation startMethod = createStartMethodCyclicInvokation();
+        JCommander.newBuilder().addObject(this.sut).build().parse("--collapse-repeated");
+        // Test
+        this.sut.createPlantUmlContent(startMethod);
+        // Verify
+        String[] result = this.sut.getPlantUmlContent().split(System.lineSeparator());
+        assertThat(result[3]).isEqualTo("Invoker -> parser.c ++ : parse");
+        assertThat(result[4]).isEqualTo("parser.c -> token.c ++ : gettoken");
+        assertThat(result[5]).isEqualTo("token.c -> ast.c ++ : buildast");
+        // parse is being expanded, so the cyclic invokation refers to it.
+        assertThat(result[6]).isEqualTo("ast.c -> parser.c ++ : parse");
+        assertThat(result[7]).isEqualTo("ref over parser.c : parse");
+        assertThat(result[8]).isEqualTo("parser.c --> ast.c");
+    }
+
+    // main -> fa -> fx -> fy, and then main -> fx.
+    CMethodImplementation createStartMethodWithMethodFirstInvokedDeep() {
+        CMethodImplementation fyMethod = new CMethodImplementation("fy", new CSourceFile("y.c"));
+        CMethodImplementation fxMethod = new CMethodImplementation("fx", new CSourceFile("x.c"));
+        fxMethod.addMethodInvokation(fyMethod);
+        CMethodImplementation faMethod = new CMethodImplementation("fa", new CSourceFile("a.c"));
+        faMethod.addMethodInvokation(fxMethod);
+        CMethodImplementation mainMethod = new CMethodImplementation("main", new CSourceFile("main.c"));
+        mainMethod.addMethodInvokation(faMethod);
+        mainMethod.addMethodInvokation(fxMethod);
+        return mainMethod;
+    }
+
+    CMethodImplementation createStartMethodRepeatedInvokation() {
+        CMethodImplementation fileWriteMethod = new CMethodImplementation("file_write", new CSourceFile("file.c"));
+        CMethodImplementation logWriteMethod = new CMethodImplementation("log_write", new CSourceFile("log.c"));
+        logWriteMethod.addMethodInvokation(fileWriteMethod);
+        CMethodImplementation createOrderMethod = new CMethodImplementation("createOrder", new CSourceFile("order.c"));
+        createOrderMethod.addMethodInvokation(logWriteMethod);
+        CMethodImplementation processOrdersMethod = new CMethodImplementation("processOrders",
+                new CSourceFile("orderengine.c"));
+        processOrdersMethod.addMethodInvokation(createOrderMethod);
+        processOrdersMethod.addMethodInvokation(logWriteMethod);
+        processOrdersMethod.addMethodInvokation(fileWriteMethod);
+        return processOrdersMethod;
+    }
+
     CMethodImplementation createStartMethodCyclicInvokation() {
         CSourceFile TokenSourceFile = new CSourceFile("token.c");
         CMethodImplementation gettokenMethod = new CMethodImplementation("gettoken", TokenSourceFile);
@@ -0,0 +1,266 @@
+package org.teinelund.tools.c2plantuml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Writes a synthetic C code base, for scaling tests and benchmarks. The code base has nrOfFiles source files
+ * moduleN.c, each with a header file moduleN.h declaring its methods moduleN_methodM, and main.c with a main method.
+ * The files are spread over subdirectories of at most 100 source files each.
+ *
+ * A source file includes the header file of the next source file and nrOfIncludesPerFile - 1 other, random, header
+ * files, but not its own header file. Each method invokes fanOut methods in its own source file or in the included
+ * ones. Without cycles the methods only invoke methods after themselves (in the same file, or in a file with a higher
+ * number), so the methods form a directed acyclic graph. With a cycleRate above 0, that share of the invokations may
+ * go to any of those methods, including earlier ones and the method itself. main invokes the first method of the
+ * first fanOut source files.
+ *
+ * A multiLineRate share of the method definitions, method declarations and method invokations are written over two
+ * or three lines, the way parseSourceFile handles them. The code base is the same for the same settings and seed.
+ *
+ * The number of methods and invokations can be large even for moderate settings, since every path through the graph
+ * is a path in a sequence diagram; render with collapse repeated methods or a max nodes limit.
+ */
+public class CCodebaseGenerator {
+
+    private static final int NR_OF_FILES_PER_DIRECTORY = 100;
+
+    private int nrOfFiles = 10;
+    private int nrOfMethodsPerFile = 10;
+    private int fanOut = 2;
+    private int nrOfIncludesPerFile = 2;
+    private double cycleRate = 0.0;
+    private double multiLineRate = 0.0;
+    private long seed = 1;
+
+    private int nrOfInvokations;
+    private long nrOfLines;
+
+    public void setNrOfFiles(int nrOfFiles) {
+        this.nrOfFiles = nrOfFiles;
+    }
+
+    public void setNrOfMethodsPerFile(int nrOfMethodsPerFile) {
+        this.nrOfMethodsPerFile = nrOfMethodsPerFile;
+    }
+
+    public void setFanOut(int fanOut) {
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * Number of header files included by each source file, the include density. At most nrOfFiles - 1.
+     */
+    public void setNrOfIncludesPerFile(int nrOfIncludesPerFile) {
+        this.nrOfIncludesPerFile = nrOfIncludesPerFile;
+    }
+
+    public void setCycleRate(double cycleRate) {
+        this.cycleRate = cycleRate;
+    }
+
+    public void setMultiLineRate(double multiLineRate) {
+        this.multiLineRate = multiLineRate;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getNrOfFiles() {
+        return nrOfFiles;
+    }
+
+    /**
+     * Number of method implementations, main included.
+     */
+    public int getNrOfMethods() {
+        return nrOfFiles * nrOfMethodsPerFile + 1;
+    }
+
+    /**
+     * Number of method invokations written by the last generate, main's included.
+     */
+    public int getNrOfInvokations() {
+        return nrOfInvokations;
+    }
+
+    /**
+     * Number of lines written by the last generate.
+     */
+    public long getNrOfLines() {
+        return nrOfLines;
+    }
+
+    public void generate(Path directory) throws IOException {
+        if (nrOfIncludesPerFile >= nrOfFiles) {
+            throw new IllegalStateException("Number of includes per file (" + nrOfIncludesPerFile +
+                    ") must be less than the number of files (" + nrOfFiles + ").");
+        }
+        Random random = new Random(seed);
+        nrOfInvokations = 0;
+        nrOfLines = 0;
+        for (int file = 0; file < nrOfFiles; file++) {
+            Path subdirectory = Files.createDirectories(
+                    directory.resolve("dir" + (file / NR_OF_FILES_PER_DIRECTORY)));
+            write(subdirectory.resolve("module" + file + ".h"), createHeaderFile(file, random));
+            write(subdirectory.resolve("module" + file + ".c"), createSourceFile(file, random));
+        }
+        write(directory.resolve("main.c"), createMainFile());
+    }
+
+    private void write(Path path, List<String> lines) throws IOException {
+        Files.write(path, lines, StandardCharsets.ISO_8859_1);
+        nrOfLines += lines.size();
+    }
+
+    private List<String> createHeaderFile(int file, Random random) {
+        List<String> lines = new ArrayList<>();
+        lines.add("#ifndef MODULE" + file + "_H");
+        lines.add("#define MODULE" + file + "_H");
+        lines.add("");
+        lines.add("#include <stddef.h>");
+        lines.add("");
+        for (int method = 0; method < nrOfMethodsPerFile; method++) {
+            if (random.nextDouble() < multiLineRate) {
+                lines.add("int " + methodName(file, method) + "(int value, const char *name, size_t len,");
+                lines.add("opflags_t flags, const char **names);");
+            }
+            else {
+                lines.add("int " + methodName(file, method) + "(int value, const char *name);");
+            }
+        }
+        lines.add("");
+        lines.add("#endif");
+        return lines;
+    }
+
+    private List<String> createSourceFile(int file, Random random) {
+        List<Integer> includedFiles = includedFiles(file, random);
+        List<String> lines = new ArrayList<>();
+        lines.add("#include <stdio.h>");
+        for (int includedFile : includedFiles) {
+            lines.add("#include \"module" + includedFile + ".h\"");
+        }
+        lines.add("");
+        for (int method = 0; method < nrOfMethodsPerFile; method++) {
+            lines.add("/*");
+            lines.add(" * Method " + method + " in module " + file + ".");
+            lines.add(" */");
+            addMethodDefinition(lines, methodName(file, method), random);
+            lines.add("    int result = 0;");
+            for (int i = 0; i < fanOut; i++) {
+                String invokedMethodName = invokedMethodName(file, method, includedFiles, random);
+                if (Objects.isNull(invokedMethodName)) {
+                    continue;
+                }
+                lines.add("    if (value > " + i + ") {");
+                addMethodInvokation(lines, invokedMethodName, random);
+                lines.add("    }");
+            }
+            lines.add("    return result;");
+            lines.add("}");
+            lines.add("");
+        }
+        return lines;
+    }
+
+    private List<String> createMainFile() {
+        List<String> lines = new ArrayList<>();
+        lines.add("#include <stdio.h>");
+        int nrOfInvokedFiles = Math.min(fanOut, nrOfFiles);
+        for (int file = 0; file < nrOfInvokedFiles; file++) {
+            lines.add("#include \"module" + file + ".h\"");
+        }
+        lines.add("");
+        lines.add("int main(int argc, char **argv) {");
+        for (int file = 0; file < nrOfInvokedFiles; file++) {
+            lines.add("    " + methodName(file, 0) + "(argc, argv[0]);");
+            nrOfInvokations++;
+        }
+        lines.add("    return 0;");
+        lines.add("}");
+        return lines;
+    }
+
+    private List<Integer> includedFiles(int file, Random random) {
+        Set<Integer> includedFiles = new LinkedHashSet<>();
+        if (nrOfIncludesPerFile > 0) {
+            includedFiles.add((file + 1) % nrOfFiles);
+        }
+        while (includedFiles.size() < nrOfIncludesPerFile) {
+            int includedFile = random.nextInt(nrOfFiles);
+            if (includedFile != file) {
+                includedFiles.add(includedFile);
+            }
+        }
+        return new ArrayList<>(includedFiles);
+    }
+
+    /**
+     * Returns the name of a method to invoke, or null if the method has no method after it to invoke.
+     */
+    private String invokedMethodName(int file, int method, List<Integer> includedFiles, Random random) {
+        boolean cycle = random.nextDouble() < cycleRate;
+        List<Integer> invokableFiles = new ArrayList<>();
+        if (cycle || method + 1 < nrOfMethodsPerFile) {
+            invokableFiles.add(file);
+        }
+        for (int includedFile : includedFiles) {
+            if (cycle || includedFile > file) {
+                invokableFiles.add(includedFile);
+            }
+        }
+        if (invokableFiles.isEmpty()) {
+            return null;
+        }
+        int invokedFile = invokableFiles.get(random.nextInt(invokableFiles.size()));
+        int invokedMethod;
+        if (invokedFile == file && !cycle) {
+            invokedMethod = method + 1 + random.nextInt(nrOfMethodsPerFile - method - 1);
+        }
+        else {
+            invokedMethod = random.nextInt(nrOfMethodsPerFile);
+        }
+        nrOfInvokations++;
+        return methodName(invokedFile, invokedMethod);
+    }
+
+    private void addMethodDefinition(List<String> lines, String methodName, Random random) {
+        double value = random.nextDouble();
+        if (value < multiLineRate / 2) {
+            lines.add("static inline int");
+            lines.add(methodName + "(int value, const char *name)");
+            lines.add("{");
+        }
+        else if (value < multiLineRate) {
+            lines.add("int " + methodName + "(int value, const char *name)");
+            lines.add("{");
+        }
+        else {
+            lines.add("int " + methodName + "(int value, const char *name) {");
+        }
+    }
+
+    private void addMethodInvokation(List<String> lines, String methodName, Random random) {
+        if (random.nextDouble() < multiLineRate) {
+            lines.add("        result = " + methodName + "(value - 1,");
+            lines.add("            name);");
+        }
+        else {
+            lines.add("        result = " + methodName + "(value - 1, name);");
+        }
+    }
+
+    private static String methodName(int file, int method) {
+        return "module" + file + "_method" + method;
+    }
+}
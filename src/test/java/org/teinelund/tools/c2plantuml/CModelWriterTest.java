@@ -0,0 +1,136 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CModelWriterTest {
+
+    @BeforeEach
+    void init() {
+        NameTable.global().clear();
+    }
+
+    @Test
+    void writeAndReadWovenModel() throws IOException {
+        // Initialize
+        List<CSourceFile> cHeaderFiles = new ArrayList<>();
+        List<CSourceFile> cSourceFiles = new ArrayList<>();
+        createWovenModel(cHeaderFiles, cSourceFiles);
+        List<CSourceFile> readCHeaderFiles = new ArrayList<>();
+        List<CSourceFile> readCSourceFiles = new ArrayList<>();
+        // Test
+        byte[] model = write(cHeaderFiles, cSourceFiles);
+        new CModelReader(new ByteArrayInputStream(model)).read(readCHeaderFiles, readCSourceFiles);
+        // Verify
+        assertThat(readCHeaderFiles.size()).isEqualTo(1);
+        assertThat(readCSourceFiles.size()).isEqualTo(2);
+        CSourceFile orderH = readCHeaderFiles.get(0);
+        CSourceFile orderC = readCSourceFiles.get(0);
+        CSourceFile orderEngineC = readCSourceFiles.get(1);
+        assertThat(orderH.getFileName()).isEqualTo("order.h");
+        assertThat(orderH.getMethodDeclarations().get(0).getName()).isEqualTo("createOrder");
+        assertThat(orderH.getcSourceFile()).isSameAs(orderC);
+        assertThat(orderC.getFileName()).isEqualTo("order.c");
+        assertThat(orderC.getIncludeHeaderFiles().get(0)).isEqualTo("stdio.h");
+        assertThat(orderC.getHeaderFiles().isEmpty()).isTrue();
+        assertThat(orderEngineC.getFileName()).isEqualTo("orderengine.c");
+        assertThat(orderEngineC.getcSourceFile()).isNull();
+        assertThat(orderEngineC.getHeaderFiles().get(0)).isSameAs(orderH);
+
+        CMethodImplementation createOrder = orderC.getMethodDefinitions().get(0);
+        CMethodImplementation initializeOrder = orderC.getMethodDefinitions().get(1);
+        CMethodImplementation processOrders = orderEngineC.getMethodDefinitions().get(0);
+        assertThat(createOrder.getName()).isEqualTo("createOrder");
+        assertThat(createOrder.getSourceFile()).isSameAs(orderC);
+        assertThat(createOrder.getMethodInvokationNames().size()).isEqualTo(2);
+        assertThat(createOrder.getMethodInvokationNames().get(1)).isEqualTo("printf");
+        assertThat(createOrder.getMethodInvokations().size()).isEqualTo(1);
+        assertThat(createOrder.getMethodInvokations().get(0)).isSameAs(initializeOrder);
+        assertThat(processOrders.getMethodInvokations().size()).isEqualTo(2);
+        assertThat(processOrders.getMethodInvokations().get(0)).isSameAs(createOrder);
+        assertThat(processOrders.getMethodInvokations().get(1)).isSameAs(processOrders);
+    }
+
+    @Test
+    void writeWritesEachNameOnce() throws IOException {
+        // Initialize
+        List<CSourceFile> cSourceFiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            CSourceFile cSourceFile = new CSourceFile("order" + i + ".c");
+            cSourceFile.addIncludeHeaderFile("a_rather_long_header_file_name.h");
+            cSourceFile.addMethodImplementation("a_rather_long_method_name");
+            cSourceFile.addMethodInvokation("a_rather_long_method_name");
+            cSourceFiles.add(cSourceFile);
+        }
+        // Test
+        byte[] model = write(List.of(), cSourceFiles);
+        // Verify
+        String content = new String(model, StandardCharsets.ISO_8859_1);
+        assertThat(content.indexOf("a_rather_long_method_name"))
+                .isEqualTo(content.lastIndexOf("a_rather_long_method_name"));
+        assertThat(content.indexOf("a_rather_long_header_file_name.h"))
+                .isEqualTo(content.lastIndexOf("a_rather_long_header_file_name.h"));
+    }
+
+    @Test
+    void readWhereModelIsTruncated() throws IOException {
+        // Initialize
+        List<CSourceFile> cHeaderFiles = new ArrayList<>();
+        List<CSourceFile> cSourceFiles = new ArrayList<>();
+        createWovenModel(cHeaderFiles, cSourceFiles);
+        byte[] model = write(cHeaderFiles, cSourceFiles);
+        byte[] truncatedModel = Arrays.copyOf(model, model.length - 1);
+        // Test
+        // Verify
+        assertThrows(IOException.class, () -> new CModelReader(new ByteArrayInputStream(truncatedModel))
+                .read(new ArrayList<>(), new ArrayList<>()));
+    }
+
+    @Test
+    void readWhereStreamIsNotAModel() {
+        // Initialize
+        byte[] content = "#include \"order.h\"\n".getBytes(StandardCharsets.ISO_8859_1);
+        // Test
+        // Verify
+        assertThrows(IOException.class, () -> new CModelReader(new ByteArrayInputStream(content))
+                .read(new ArrayList<>(), new ArrayList<>()));
+    }
+
+    private byte[] write(List<CSourceFile> cHeaderFiles, List<CSourceFile> cSourceFiles) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CModelWriter(out).write(cHeaderFiles, cSourceFiles);
+        return out.toByteArray();
+    }
+
+    private void createWovenModel(List<CSourceFile> cHeaderFiles, List<CSourceFile> cSourceFiles) {
+        CSourceFile orderH = new CSourceFile("order.h");
+        orderH.addMethodDeclaration("createOrder");
+        cHeaderFiles.add(orderH);
+        CSourceFile orderC = new CSourceFile("order.c");
+        orderC.addIncludeHeaderFile("stdio.h");
+        orderC.addMethodImplementation("createOrder");
+        orderC.addMethodInvokation("initializeOrder");
+        orderC.addMethodInvokation("printf");
+        orderC.addMethodImplementation("initializeOrder");
+        cSourceFiles.add(orderC);
+        CSourceFile orderEngineC = new CSourceFile("orderengine.c");
+        orderEngineC.addIncludeHeaderFile("order.h");
+        orderEngineC.addMethodImplementation("processOrders");
+        orderEngineC.addMethodInvokation("createOrder");
+        orderEngineC.addMethodInvokation("processOrders");
+        cSourceFiles.add(orderEngineC);
+        new Application().weaveCodeTogether(cHeaderFiles, cSourceFiles, new HashMap<>(), "processOrders", "");
+    }
+}
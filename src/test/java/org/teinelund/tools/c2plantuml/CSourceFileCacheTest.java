@@ -0,0 +1,166 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class CSourceFileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CSourceFileCache sut = null;
+    private Path sourcePath = null;
+
+    @BeforeEach
+    void init() throws IOException {
+        NameTable.global().clear();
+        this.sut = new CSourceFileCache(tempDir.resolve("cache"));
+        this.sourcePath = tempDir.resolve("order.c");
+        Files.writeString(this.sourcePath, "void createOrder(void) {\n}\n", StandardCharsets.ISO_8859_1);
+    }
+
+    @Test
+    void getWhereThereIsNoEntry() throws IOException {
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void getWhereFileIsUnchanged() throws IOException {
+        // Initialize
+        putCSourceFile();
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNotNull();
+        assertThat(result.getFileName()).isEqualTo("order.c");
+        assertThat(result.getIncludeHeaderFiles().get(0)).isEqualTo("order.h");
+        assertThat(result.getMethodDeclarations().get(0).getName()).isEqualTo("initializeOrder");
+        assertThat(result.getMethodDefinitions().size()).isEqualTo(1);
+        CMethodImplementation methodImplementation = result.getMethodDefinitions().get(0);
+        assertThat(methodImplementation.getName()).isEqualTo("createOrder");
+        assertThat(methodImplementation.getSourceFile()).isSameAs(result);
+        assertThat(methodImplementation.getMethodInvokationNames().size()).isEqualTo(2);
+        assertThat(methodImplementation.getMethodInvokationNames().get(0)).isEqualTo("initializeOrder");
+        assertThat(methodImplementation.getMethodInvokationNames().get(1)).isEqualTo("log");
+    }
+
+    @Test
+    void getWhereOnlyModificationTimeHasChanged() throws IOException {
+        // Initialize
+        putCSourceFile();
+        Files.setLastModifiedTime(this.sourcePath, FileTime.fromMillis(
+                Files.getLastModifiedTime(this.sourcePath).toMillis() + 60_000));
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNotNull();
+        assertThat(result.getMethodDefinitions().get(0).getName()).isEqualTo("createOrder");
+    }
+
+    @Test
+    void getWhereContentHasChangedButNotSize() throws IOException {
+        // Initialize
+        putCSourceFile();
+        FileTime lastModifiedTime = Files.getLastModifiedTime(this.sourcePath);
+        Files.writeString(this.sourcePath, "void deleteOrder(void) {\n}\n", StandardCharsets.ISO_8859_1);
+        Files.setLastModifiedTime(this.sourcePath, FileTime.fromMillis(lastModifiedTime.toMillis() + 60_000));
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void getWhereEntryIsMadeByAnotherParserVersion() throws IOException {
+        // Initialize
+        putCSourceFile();
+        CSourceFileCache cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"),
+                Application.PARSER_VERSION + 1);
+        // Test
+        CSourceFile result = cSourceFileCache.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void getWhereEntryIsBroken() throws IOException {
+        // Initialize
+        putCSourceFile();
+        Path entryPath = this.sut.entryPath(this.sourcePath);
+        Files.write(entryPath, new byte[] {0x43, 0x32});
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void getWhereEntryHasHugeCount() throws IOException {
+        // Initialize
+        putCSourceFile();
+        // Integer.MAX_VALUE strings.
+        replaceNrOfStrings(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void getWhereEntryHasNegativeCount() throws IOException {
+        // Initialize
+        putCSourceFile();
+        // -1 strings.
+        replaceNrOfStrings(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        // Test
+        CSourceFile result = this.sut.get(this.sourcePath, attributes());
+        // Verify
+        assertThat(result).isNull();
+    }
+
+    // Replaces the number of strings of the model in the entry, the one byte after the model magic and version.
+    private void replaceNrOfStrings(byte[] nrOfStrings) throws IOException {
+        Path entryPath = this.sut.entryPath(this.sourcePath);
+        byte[] entry = Files.readAllBytes(entryPath);
+        int modelIndex = -1;
+        for (int i = 0; i + 4 <= entry.length && modelIndex < 0; i++) {
+            if (entry[i] == 0x43 && entry[i + 1] == 0x32 && entry[i + 2] == 0x50 && entry[i + 3] == 0x4D) {
+                modelIndex = i;
+            }
+        }
+        int countIndex = modelIndex + 8;
+        byte[] brokenEntry = new byte[entry.length - 1 + nrOfStrings.length];
+        System.arraycopy(entry, 0, brokenEntry, 0, countIndex);
+        System.arraycopy(nrOfStrings, 0, brokenEntry, countIndex, nrOfStrings.length);
+        System.arraycopy(entry, countIndex + 1, brokenEntry, countIndex + nrOfStrings.length,
+                entry.length - countIndex - 1);
+        Files.write(entryPath, brokenEntry);
+    }
+
+    private void putCSourceFile() throws IOException {
+        CSourceFile cSourceFile = new CSourceFile("order.c");
+        cSourceFile.addIncludeHeaderFile("order.h");
+        cSourceFile.addMethodDeclaration("initializeOrder");
+        cSourceFile.addMethodImplementation("createOrder");
+        cSourceFile.addMethodInvokation("initializeOrder");
+        cSourceFile.addMethodInvokation("log");
+        this.sut.put(this.sourcePath, attributes(), CSourceFileCache.contentHash(this.sourcePath), cSourceFile);
+    }
+
+    private BasicFileAttributes attributes() throws IOException {
+        return Files.readAttributes(this.sourcePath, BasicFileAttributes.class);
+    }
+}
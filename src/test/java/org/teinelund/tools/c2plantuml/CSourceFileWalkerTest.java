@@ -0,0 +1,91 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CSourceFileWalkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void walkWhereDirectoryIsEmpty() throws IOException {
+        // Initialize
+        CSourceFileWalker sut = new CSourceFileWalker(new ForkJoinPool(2));
+        // Test
+        List<Path> result = sut.walk(tempDir);
+        // Verify
+        assertThat(result.isEmpty()).isTrue();
+    }
+
+    @Test
+    void walkWithSubdirectories() throws IOException {
+        // Initialize
+        for (int i = 0; i < 10; i++) {
+            Path directory = Files.createDirectories(tempDir.resolve("module" + i).resolve("src"));
+            Files.createFile(directory.resolve("order" + i + ".c"));
+            Files.createFile(directory.resolve("order" + i + ".h"));
+            Files.createFile(directory.resolve("Makefile"));
+            Files.createFile(directory.resolve("order" + i + ".o"));
+        }
+        Files.createDirectories(tempDir.resolve("directory.c"));
+        Files.createFile(tempDir.resolve("main.c"));
+        CSourceFileWalker sut = new CSourceFileWalker(new ForkJoinPool(4));
+        // Test
+        List<Path> result = sut.walk(tempDir);
+        // Verify
+        assertThat(result.size()).isEqualTo(21);
+        assertThat(result.get(0)).isEqualTo(tempDir.resolve("main.c"));
+        assertThat(result.get(1)).isEqualTo(tempDir.resolve("module0").resolve("src").resolve("order0.c"));
+        assertThat(result.get(2)).isEqualTo(tempDir.resolve("module0").resolve("src").resolve("order0.h"));
+        assertThat(result.get(20)).isEqualTo(tempDir.resolve("module9").resolve("src").resolve("order9.h"));
+    }
+
+    @Test
+    void walkIsAddedToCurrentPhase() throws Exception {
+        // Initialize
+        for (int i = 0; i < 10; i++) {
+            Files.createFile(Files.createDirectories(tempDir.resolve("module" + i)).resolve("order" + i + ".c"));
+        }
+        RunStatistics statistics = new RunStatistics(true);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            // Test
+            statistics.startPhase("unmeasured");
+            executorService.submit(() -> new CSourceFileWalker(new ForkJoinPool(2)).walk(tempDir)).get();
+            statistics.endPhase();
+            statistics.startPhase("measured");
+            executorService.submit(() -> new CSourceFileWalker(new ForkJoinPool(2), statistics).walk(tempDir)).get();
+            statistics.endPhase();
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+        // Verify
+        RunStatistics.Phase unmeasuredPhase = statistics.getPhases().get(0);
+        RunStatistics.Phase measuredPhase = statistics.getPhases().get(1);
+        if (measuredPhase.getAllocatedBytes() >= 0) {
+            assertThat(measuredPhase.getAllocatedBytes()).isGreaterThan(unmeasuredPhase.getAllocatedBytes());
+        }
+    }
+
+    @Test
+    void walkWhereDirectoryDoesNotExist() {
+        // Initialize
+        CSourceFileWalker sut = new CSourceFileWalker(new ForkJoinPool(2));
+        // Test
+        // Verify
+        assertThrows(IOException.class, () -> sut.walk(tempDir.resolve("missing")));
+    }
+}
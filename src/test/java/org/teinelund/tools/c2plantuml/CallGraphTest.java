@@ -0,0 +1,83 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CallGraphTest {
+
+    @BeforeEach
+    void init() {
+        NameTable.global().clear();
+    }
+
+    @Test
+    void ofSourceFiles() {
+        // Initialize
+        List<CSourceFile> cSourceFiles = createSourceFiles();
+        // Test
+        CallGraph result = CallGraph.of(cSourceFiles);
+        // Verify
+        assertThat(result.size()).isEqualTo(4);
+        assertThat(result.getNrOfEdges()).isEqualTo(4);
+        assertThat(result.getName(0)).isEqualTo("createOrder");
+        assertThat(result.getName(1)).isEqualTo("initializeOrder");
+        assertThat(result.getName(2)).isEqualTo("processOrders");
+        assertThat(result.getName(3)).isEqualTo("countOrders");
+        assertThat(result.getFileName(2)).isEqualTo("orderengine.c");
+        assertThat(result.getFileNameId(2)).isEqualTo(cSourceFiles.get(1).getFileNameId());
+        assertThat(result.getTargets(0)).isEqualTo(new int[] {1});
+        assertThat(result.getTargets(1)).isEqualTo(new int[0]);
+        assertThat(result.getTargets(2)).isEqualTo(new int[] {0, 1, 2});
+        assertThat(result.getTargets(3)).isEqualTo(new int[0]);
+        assertThat(result.getFirstTarget(2)).isEqualTo(1);
+        assertThat(result.getEndTarget(2)).isEqualTo(4);
+        assertThat(result.getMethodImplementation(2)).isSameAs(cSourceFiles.get(1).getMethodDefinitions().get(0));
+    }
+
+    @Test
+    void reachableFromStartMethod() {
+        // Initialize
+        List<CSourceFile> cSourceFiles = createSourceFiles();
+        CMethodImplementation createOrder = cSourceFiles.get(0).getMethodDefinitions().get(0);
+        // Test
+        CallGraph result = CallGraph.reachableFrom(createOrder);
+        // Verify
+        assertThat(result.size()).isEqualTo(2);
+        assertThat(result.id(createOrder)).isEqualTo(0);
+        assertThat(result.getName(1)).isEqualTo("initializeOrder");
+        assertThat(result.getTargets(0)).isEqualTo(new int[] {1});
+        assertThat(result.contains(cSourceFiles.get(1).getMethodDefinitions().get(0))).isFalse();
+        assertThat(result.id(cSourceFiles.get(1).getMethodDefinitions().get(0))).isEqualTo(-1);
+    }
+
+    @Test
+    void ofSourceFilesWhereInvokedMethodIsNotInSourceFiles() {
+        // Initialize
+        List<CSourceFile> cSourceFiles = createSourceFiles();
+        // Test
+        // Verify
+        assertThrows(IllegalStateException.class, () -> CallGraph.of(List.of(cSourceFiles.get(1))));
+    }
+
+    private List<CSourceFile> createSourceFiles() {
+        CSourceFile orderC = new CSourceFile("order.c");
+        orderC.addMethodImplementation("createOrder");
+        orderC.addMethodImplementation("initializeOrder");
+        CSourceFile orderEngineC = new CSourceFile("orderengine.c");
+        orderEngineC.addMethodImplementation("processOrders");
+        orderEngineC.addMethodImplementation("countOrders");
+        CMethodImplementation createOrder = orderC.getMethodDefinitions().get(0);
+        CMethodImplementation initializeOrder = orderC.getMethodDefinitions().get(1);
+        CMethodImplementation processOrders = orderEngineC.getMethodDefinitions().get(0);
+        createOrder.addMethodInvokation(initializeOrder);
+        processOrders.addMethodInvokation(createOrder);
+        processOrders.addMethodInvokation(initializeOrder);
+        processOrders.addMethodInvokation(processOrders);
+        return List.of(orderC, orderEngineC);
+    }
+}
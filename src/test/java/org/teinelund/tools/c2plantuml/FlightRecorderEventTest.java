@@ -0,0 +1,110 @@
+package org.teinelund.tools.c2plantuml;
+
+import com.beust.jcommander.JCommander;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class FlightRecorderEventTest {
+
+    @BeforeEach
+    void init() {
+        NameTable.global().clear();
+    }
+
+    @Test
+    void parseWeaveAndRenderAreRecorded(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path orderPath = tempDir.resolve("order.c");
+        Files.write(orderPath, List.of("int main(void) {", "    createOrder();", "}", "void createOrder(void) {", "}"),
+                StandardCharsets.ISO_8859_1);
+        Application application = new Application();
+        Path recordingPath = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ParsePathEvent.class);
+            recording.enable(WeavePassEvent.class);
+            recording.enable(RenderEvent.class);
+            recording.start();
+            // Test
+            application.addCSourceFile(application.parsePath(orderPath));
+            application.weaveCodeTogether(application.cHeaderFiles, application.cSourceFiles, new HashMap<>(),
+                    "main", "");
+            application.createPlantUmlContent(application.getStartingMethod());
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+        // Verify
+        List<RecordedEvent> parsePathEvents = new ArrayList<>();
+        List<RecordedEvent> weavePassEvents = new ArrayList<>();
+        List<RecordedEvent> renderEvents = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingPath)) {
+            switch (event.getEventType().getName()) {
+                case "org.teinelund.tools.c2plantuml.ParsePath":
+                    parsePathEvents.add(event);
+                    break;
+                case "org.teinelund.tools.c2plantuml.WeavePass":
+                    weavePassEvents.add(event);
+                    break;
+                case "org.teinelund.tools.c2plantuml.Render":
+                    renderEvents.add(event);
+                    break;
+            }
+        }
+        assertThat(parsePathEvents.size()).isEqualTo(1);
+        assertThat(parsePathEvents.get(0).getString("path")).isEqualTo(orderPath.toString());
+        assertThat(parsePathEvents.get(0).getLong("bytes")).isEqualTo(Files.size(orderPath));
+        assertThat(parsePathEvents.get(0).getInt("lines")).isEqualTo(5);
+        assertThat(weavePassEvents.size()).isEqualTo(6);
+        assertThat(weavePassEvents.get(5).getString("pass")).isEqualTo("buildCallGraph");
+        assertThat(renderEvents.size()).isEqualTo(1);
+        assertThat(renderEvents.get(0).getString("startMethod")).isEqualTo("main");
+        assertThat(renderEvents.get(0).getInt("invokations")).isEqualTo(2);
+    }
+
+    @Test
+    void parsePathIsRecordedForCachedFileReadByIoThreads(@TempDir Path tempDir) throws IOException {
+        // Initialize
+        Path inputPath = Files.createDirectories(tempDir.resolve("input"));
+        Path orderPath = inputPath.resolve("order.c");
+        Files.write(orderPath, List.of("void createOrder(void) {", "}"), StandardCharsets.ISO_8859_1);
+        Application application = new Application();
+        JCommander.newBuilder().addObject(application).build().parse("--io-threads", "1");
+        application.inputPath = inputPath;
+        application.cSourceFileCache = new CSourceFileCache(tempDir.resolve("cache"));
+        application.fetchReadAndParseCFiles();
+        application.cSourceFiles.clear();
+        Path recordingPath = tempDir.resolve("recording.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ParsePathEvent.class);
+            recording.start();
+            // Test
+            application.fetchReadAndParseCFiles();
+            recording.stop();
+            recording.dump(recordingPath);
+        }
+        // Verify
+        List<RecordedEvent> parsePathEvents = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingPath)) {
+            if (event.getEventType().getName().equals("org.teinelund.tools.c2plantuml.ParsePath")) {
+                parsePathEvents.add(event);
+            }
+        }
+        assertThat(parsePathEvents.size()).isEqualTo(1);
+        assertThat(parsePathEvents.get(0).getString("path")).isEqualTo(orderPath.toString());
+        assertThat(parsePathEvents.get(0).getBoolean("cached")).isTrue();
+        assertThat(parsePathEvents.get(0).getInt("lines")).isEqualTo(2);
+    }
+}
@@ -0,0 +1,166 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class LogTest {
+
+    @Test
+    void flushWritesLinesInOrder() {
+        // Initialize
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Log sut = new Log(new PrintStream(out, true));
+        // Test
+        for (int i = 0; i < 1000; i++) {
+            sut.println("line " + i);
+        }
+        sut.flush();
+        // Verify
+        String[] lines = out.toString(Charset.defaultCharset()).split(System.lineSeparator());
+        assertThat(lines.length).isEqualTo(1000);
+        assertThat(lines[0]).isEqualTo("line 0");
+        assertThat(lines[999]).isEqualTo("line 999");
+    }
+
+    @Test
+    void flushWritesLinesFromSeveralThreads() throws InterruptedException {
+        // Initialize
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Log sut = new Log(new PrintStream(out, true));
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int threadNumber = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    sut.println("thread " + threadNumber + " line " + i);
+                }
+            }));
+        }
+        // Test
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sut.flush();
+        // Verify
+        String[] lines = out.toString(Charset.defaultCharset()).split(System.lineSeparator());
+        assertThat(lines.length).isEqualTo(400);
+        int nextLineOfThread0 = 0;
+        for (String line : lines) {
+            if (line.startsWith("thread 0 ")) {
+                assertThat(line).isEqualTo("thread 0 line " + nextLineOfThread0++);
+            }
+        }
+        assertThat(nextLineOfThread0).isEqualTo(100);
+    }
+
+    @Test
+    void flushWithoutLines() {
+        // Initialize
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Log sut = new Log(new PrintStream(out, true));
+        // Test
+        sut.flush();
+        // Verify
+        assertThat(out.size()).isEqualTo(0);
+    }
+
+    @Test
+    void printlnWaitsWhenQueueIsFull() throws InterruptedException {
+        // Initialize
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CountDownLatch consoleWriting = new CountDownLatch(1);
+        CountDownLatch consoleReady = new CountDownLatch(1);
+        OutputStream slowConsole = new OutputStream() {
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                consoleWriting.countDown();
+                awaitUninterruptibly(consoleReady);
+                out.write(b, off, len);
+            }
+        };
+        Log sut = new Log(new PrintStream(slowConsole, true), 10);
+        // The writer thread writes the first line, and waits for the console.
+        sut.println("line 0");
+        awaitUninterruptibly(consoleWriting);
+        Thread printer = new Thread(() -> {
+            for (int i = 1; i < 100; i++) {
+                sut.println("line " + i);
+            }
+        });
+        // Test
+        printer.start();
+        while (printer.getState() != Thread.State.WAITING && printer.getState() != Thread.State.TERMINATED) {
+            Thread.sleep(1);
+        }
+        Thread.State printerState = printer.getState();
+        consoleReady.countDown();
+        printer.join();
+        sut.flush();
+        // Verify
+        assertThat(printerState).isEqualTo(Thread.State.WAITING);
+        String[] lines = out.toString(Charset.defaultCharset()).split(System.lineSeparator());
+        assertThat(lines.length).isEqualTo(100);
+        assertThat(lines[99]).isEqualTo("line 99");
+    }
+
+    @Test
+    void flushAfterOutputStreamThrows() {
+        // Initialize
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStream failingOnceConsole = new OutputStream() {
+            private boolean failed = false;
+
+            @Override
+            public void write(int b) {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("Console is gone.");
+                }
+                out.write(b, off, len);
+            }
+        };
+        Log sut = new Log(new PrintStream(failingOnceConsole, true));
+        // Test
+        sut.println("first line");
+        sut.flush();
+        sut.println("second line");
+        sut.flush();
+        // Verify
+        assertThat(out.toString(Charset.defaultCharset())).contains("second line");
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            }
+            catch (InterruptedException e) {
+                // Wait on.
+            }
+        }
+    }
+}
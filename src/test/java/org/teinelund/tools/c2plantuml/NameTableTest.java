@@ -0,0 +1,85 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class NameTableTest {
+
+    @Test
+    void idOfSameNameIsSame() {
+        // Initialize
+        NameTable sut = new NameTable();
+        // Test
+        int createOrderId = sut.id("createOrder");
+        int processOrdersId = sut.id("processOrders");
+        // Verify
+        assertThat(createOrderId).isEqualTo(0);
+        assertThat(processOrdersId).isEqualTo(1);
+        assertThat(sut.id(new String("createOrder"))).isEqualTo(createOrderId);
+        assertThat(sut.name(processOrdersId)).isEqualTo("processOrders");
+        assertThat(sut.size()).isEqualTo(2);
+    }
+
+    @Test
+    void clearRemovesAllNames() {
+        // Initialize
+        NameTable sut = new NameTable();
+        sut.id("createOrder");
+        sut.id("processOrders");
+        // Test
+        sut.clear();
+        // Verify
+        assertThat(sut.size()).isEqualTo(0);
+        assertThat(sut.id("processOrders")).isEqualTo(0);
+        assertThat(sut.name(0)).isEqualTo("processOrders");
+    }
+
+    @Test
+    void internReturnsOneInstancePerName() {
+        // Initialize
+        NameTable sut = new NameTable();
+        String name = sut.intern("createOrder");
+        // Test
+        String result = sut.intern(new String("createOrder"));
+        // Verify
+        assertThat(result).isSameAs(name);
+    }
+
+    @Test
+    void idFromSeveralThreads() throws Exception {
+        // Initialize
+        NameTable sut = new NameTable();
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        List<Future<int[]>> futures = new ArrayList<>();
+        // Test
+        for (int i = 0; i < 4; i++) {
+            futures.add(executorService.submit(() -> {
+                int[] ids = new int[5000];
+                for (int j = 0; j < ids.length; j++) {
+                    ids[j] = sut.id("method" + j);
+                }
+                return ids;
+            }));
+        }
+        List<int[]> result = new ArrayList<>();
+        for (Future<int[]> future : futures) {
+            result.add(future.get());
+        }
+        executorService.shutdown();
+        // Verify
+        assertThat(sut.size()).isEqualTo(5000);
+        for (int[] ids : result) {
+            for (int j = 0; j < ids.length; j++) {
+                assertThat(ids[j]).isEqualTo(result.get(0)[j]);
+                assertThat(sut.name(ids[j])).isEqualTo("method" + j);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package org.teinelund.tools.c2plantuml;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class RunStatisticsTest {
+
+    @Test
+    void phasesAreMeasuredInOrder() {
+        // Initialize
+        RunStatistics sut = new RunStatistics(true);
+        // Test
+        sut.startPhase("first");
+        sut.endPhase();
+        sut.startPhase("second");
+        sut.endPhase();
+        // Verify
+        assertThat(sut.getPhases().size()).isEqualTo(2);
+        assertThat(sut.getPhases().get(0).getName()).isEqualTo("first");
+        assertThat(sut.getPhases().get(1).getName()).isEqualTo("second");
+        assertThat(sut.getPhases().get(1).getWallTimeNanos()).isGreaterThanOrEqualTo(0L);
+    }
+
+    @Test
+    void workOnWorkerThreadIsAddedToCurrentPhase() throws Exception {
+        // Initialize
+        RunStatistics sut = new RunStatistics(true);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        sut.startPhase("parse");
+        long phaseAllocatedBytes;
+        try {
+            // Test
+            long[] workerAllocatedBytes = executorService.submit(() -> sut.measureWork(() -> new long[100_000])).get();
+            phaseAllocatedBytes = workerAllocatedBytes.length;
+        }
+        finally {
+            executorService.shutdownNow();
+        }
+        sut.endPhase();
+        // Verify
+        RunStatistics.Phase phase = sut.getPhases().get(0);
+        if (phase.getAllocatedBytes() >= 0) {
+            assertThat(phase.getAllocatedBytes()).isGreaterThan(8 * phaseAllocatedBytes);
+        }
+    }
+
+    @Test
+    void disabledStatisticsCountNothing() {
+        // Initialize
+        RunStatistics sut = new RunStatistics(false);
+        // Test
+        sut.startPhase("parse");
+        sut.addLines(10);
+        sut.addBytes(100);
+        sut.addUnresolvedCalls(1);
+        sut.addOutputLines(5);
+        sut.endPhase();
+        // Verify
+        assertThat(sut.getPhases().isEmpty()).isTrue();
+        assertThat(sut.getNrOfLines()).isEqualTo(0L);
+        assertThat(sut.getNrOfBytes()).isEqualTo(0L);
+        assertThat(sut.getNrOfUnresolvedCalls()).isEqualTo(0L);
+        assertThat(sut.getNrOfOutputLines()).isEqualTo(0L);
+    }
+
+    @Test
+    void toJson() {
+        // Initialize
+        RunStatistics sut = new RunStatistics(true);
+        sut.startPhase("parsePaths");
+        sut.endPhase();
+        sut.addLines(12);
+        sut.setNrOfFiles(3);
+        // Test
+        String result = sut.toJson();
+        // Verify
+        assertThat(result.startsWith("{")).isTrue();
+        assertThat(result.contains("{\"name\": \"parsePaths\", \"wallTimeNanos\": ")).isTrue();
+        assertThat(result.contains("\"files\": 3,")).isTrue();
+        assertThat(result.contains("\"lines\": 12,")).isTrue();
+        assertThat(result.contains("\"outputLines\": 0" + System.lineSeparator() + "}")).isTrue();
+    }
+}